@@ -0,0 +1,67 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.ScriptedInput;
+import pepse.world.Avatar;
+import pepse.world.JumpAvatarObserver;
+import pepse.world.JumpObserverIndex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the notification of the avatar's jump observers, with observers spread evenly
+ * over a world much wider than the notification radius.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvatarNotifyBenchmark {
+    private static final float WORLD_WIDTH = 30000;
+    private static final float NOTIFICATION_RADIUS = 512;
+
+    /** The number of registered observers. */
+    @Param({"100", "1000", "10000", "100000"})
+    public int observers;
+
+    private JumpObserverIndex observerIndex;
+    private long notifications;
+
+    /**
+     * Registers the observers with an avatar.
+     */
+    @Setup
+    public void setup() {
+        Avatar avatar = new Avatar(Vector2.ZERO, new ScriptedInput(), null, false);
+        observerIndex = avatar.getObserverIndex();
+        for (int i = 0; i < observers; i++) {
+            // the lambda captures this, so each observer is a distinct instance
+            JumpAvatarObserver observer = () -> notifications++;
+            avatar.registerObserver(observer, -WORLD_WIDTH / 2 + i * WORLD_WIDTH / observers);
+        }
+    }
+
+    /**
+     * Notifies the observers around the middle of the world, as the avatar does on every jump
+     * (its notification is private, and only forwards its own range to the index).
+     * @return The number of notifications so far.
+     */
+    @Benchmark
+    public long notifyObservers() {
+        observerIndex.notifyInRange(-NOTIFICATION_RADIUS, NOTIFICATION_RADIUS);
+        return notifications;
+    }
+}
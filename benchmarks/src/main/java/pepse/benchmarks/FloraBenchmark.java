@@ -0,0 +1,88 @@
+package pepse.benchmarks;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.ScriptedInput;
+import pepse.util.FastRandom;
+import pepse.util.FrameScheduler;
+import pepse.world.Avatar;
+import pepse.world.Terrain;
+import pepse.world.trees.Flora;
+import pepse.world.trees.LeafAnimator;
+import pepse.world.trees.Leaves;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the generation of flora: the trees of a range, and a single cluster of leaves.
+ * Generated objects are released right away, as the chunk manager does when unloading them,
+ * so the avatar and the leaf animator don't grow during the benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloraBenchmark {
+    /** The width of the generated range, in pixels. */
+    @Param({"480", "1920"})
+    public int width;
+
+    private Terrain terrain;
+    private Avatar avatar;
+    private LeafAnimator leafAnimator;
+    private Flora flora;
+    private final FastRandom random = new FastRandom(120);
+    private int rangeX;
+
+    /**
+     * Creates the flora and its dependencies, with the seed used by the game.
+     */
+    @Setup
+    public void setup() {
+        terrain = new Terrain(new Vector2(1024, 768), 120);
+        avatar = new Avatar(Vector2.ZERO, new ScriptedInput(), null, false);
+        leafAnimator = new LeafAnimator(Leaves.LEAF_SIZE);
+        flora = new Flora(avatar, new FrameScheduler(), leafAnimator, 120);
+        flora.setGroundHeightProvider(terrain);
+    }
+
+    /**
+     * Generates the flora of a range, moving to a new range on every call.
+     * @param blackhole Consumes the generated objects.
+     */
+    @Benchmark
+    public void createInRange(Blackhole blackhole) {
+        rangeX += width;
+        List<GameObject> floraObjects = flora.createInRange(rangeX, rangeX + width);
+        blackhole.consume(floraObjects);
+        flora.release(floraObjects);
+    }
+
+    /**
+     * Generates a cluster of leaves above the ground, moving to a new tree on every call.
+     * @param blackhole Consumes the generated leaves.
+     */
+    @Benchmark
+    public void createLeavesCluster(Blackhole blackhole) {
+        rangeX += width;
+        Vector2 treeTop = new Vector2(rangeX, terrain.groundHeightAt(rangeX) - 150);
+        List<Leaves> leaves = Leaves.createLeavesCluster(treeTop, avatar, leafAnimator, random);
+        blackhole.consume(leaves);
+        flora.release(leaves);
+    }
+}
@@ -0,0 +1,61 @@
+package pepse.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.util.NoiseGenerator;
+import pepse.world.Block;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the noise shaping the terrain, one sample at a time and a chunk's columns at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+    private static final double FACTOR = Block.BLOCK_SIZE * 7;
+    private static final int CHUNK_COLUMNS = 16;
+
+    private NoiseGenerator noiseGenerator;
+    private final float[] heights = new float[CHUNK_COLUMNS];
+    private double x;
+
+    /**
+     * Creates the generator, with the seed and start point used by the game.
+     */
+    @Setup
+    public void setup() {
+        noiseGenerator = new NoiseGenerator(120, 512);
+    }
+
+    /**
+     * @return The noise of one column, moving to the next column on every call.
+     */
+    @Benchmark
+    public double noise() {
+        x += Block.BLOCK_SIZE;
+        return noiseGenerator.noise(x, FACTOR);
+    }
+
+    /**
+     * @return The noise of a chunk's columns, moving to the next chunk on every call.
+     */
+    @Benchmark
+    public float[] noiseOfChunk() {
+        x += Block.BLOCK_SIZE * CHUNK_COLUMNS;
+        noiseGenerator.noise(heights, 0, CHUNK_COLUMNS, x, Block.BLOCK_SIZE, FACTOR);
+        return heights;
+    }
+}
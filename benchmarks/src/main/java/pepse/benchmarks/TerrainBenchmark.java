@@ -0,0 +1,128 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.util.RenderablePalette;
+import pepse.world.Block;
+import pepse.world.Terrain;
+import pepse.world.TileMap;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the terrain: ground height queries, and the generation of the tile maps and surface
+ * colliders of ranges of various widths, against a baseline building one block per tile, as the
+ * terrain originally did.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainBenchmark {
+    // the heights queried by the height benchmarks wrap around this many columns
+    private static final int QUERIED_COLUMNS = 4096;
+    // the number of tiles in a column of the per-block baseline, as deep as the terrain's tile maps
+    private static final int TERRAIN_DEPTH = 20;
+    private static final RenderablePalette GROUND_PALETTE =
+            RenderablePalette.of(new Color(212, 123, 74));
+
+    /** The width of the generated range, in pixels. */
+    @Param({"480", "1920", "7680"})
+    public int width;
+
+    private Terrain terrain;
+    private int column;
+    private int rangeX;
+
+    /**
+     * Creates the terrain, with the seed and window dimensions used by the game.
+     */
+    @Setup
+    public void setup() {
+        terrain = new Terrain(new Vector2(1024, 768), 120);
+    }
+
+    /**
+     * @return The ground height at the start of a column, served by the heightmap cache once
+     * warmed up.
+     */
+    @Benchmark
+    public float groundHeightAtColumn() {
+        column = (column + 1) % QUERIED_COLUMNS;
+        return terrain.groundHeightAt(column * Block.BLOCK_SIZE);
+    }
+
+    /**
+     * @return The ground height between two columns, which always evaluates the noise.
+     */
+    @Benchmark
+    public float groundHeightBetweenColumns() {
+        column = (column + 1) % QUERIED_COLUMNS;
+        return terrain.groundHeightAt(column * Block.BLOCK_SIZE + 0.5f);
+    }
+
+    /**
+     * @return One block per tile of a range, moving to a new range on every call: the baseline
+     * the tile maps replaced.
+     */
+    @Benchmark
+    public List<Block> createBlocks() {
+        rangeX += width;
+        float[] heights = new float[width / Block.BLOCK_SIZE];
+        terrain.groundHeightsAt(rangeX, heights);
+        List<Block> blocks = new ArrayList<>(heights.length * TERRAIN_DEPTH);
+        for (int column = 0; column < heights.length; column++) {
+            int x = rangeX + column * Block.BLOCK_SIZE;
+            int startY = (int) (Math.floor(heights[column] / Block.BLOCK_SIZE) * Block.BLOCK_SIZE);
+            for (int i = 0; i < TERRAIN_DEPTH; i++) {
+                int y = startY + Block.BLOCK_SIZE * i;
+                blocks.add(new Block(new Vector2(x, y), GROUND_PALETTE.at(x, y)));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * @return The surface colliders of a range, moving to a new range on every call, and
+     * returned to the terrain's pool so the next call reuses them, as chunks do.
+     */
+    @Benchmark
+    public List<Block> createSurfaceColliders() {
+        rangeX += width;
+        float[] heights = new float[width / Block.BLOCK_SIZE];
+        terrain.groundHeightsAt(rangeX, heights);
+        List<Block> colliders = terrain.createSurfaceColliders(rangeX, heights);
+        terrain.release(colliders);
+        return colliders;
+    }
+
+    /**
+     * @return The tile map of a range, moving to a new range on every call, and returned to the
+     * terrain's pool so the next call reuses it, as chunks do.
+     */
+    @Benchmark
+    public TileMap createTileMap() {
+        rangeX += width;
+        float[] heights = new float[width / Block.BLOCK_SIZE];
+        terrain.groundHeightsAt(rangeX, heights);
+        TileMap tileMap = terrain.createTileMap(rangeX, heights);
+        terrain.release(Collections.singletonList(tileMap));
+        return tileMap;
+    }
+}
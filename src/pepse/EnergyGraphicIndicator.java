@@ -1,49 +1,158 @@
 package pepse;
 
 import danogl.GameObject;
+import danogl.gui.rendering.RectangleRenderable;
 import danogl.gui.rendering.TextRenderable;
 import danogl.util.Vector2;
 
-import java.util.function.Supplier;
+import java.awt.*;
+import java.util.function.DoubleSupplier;
 
 /**
  * A graphical representation of the avatar's energy level in the game.
- * Displays energy as a percentage on the screen.
+ * Displays energy as a percentage on the screen, or as a bar whose length follows the energy.
+ * The display is only updated when the displayed value changes, and all labels, bar sizes and
+ * colors are prepared up front, so the indicator allocates nothing while the game runs.
  */
 public class EnergyGraphicIndicator extends GameObject {
-    private final Supplier<Double> callback;
+    /** How the energy level is displayed. */
+    public enum DisplayMode {
+        /** The energy as a percentage, such as "99.5%". */
+        TEXT,
+        /** A bar whose length follows the energy. */
+        BAR
+    }
+
+    private static final int MAX_ENERGY = 100;
+    // energy changes in half units, so it is displayed with that resolution
+    private static final int STEPS_PER_UNIT = 2;
+    private static final int STEP_COUNT = MAX_ENERGY * STEPS_PER_UNIT;
+    private static final String[] LABELS = createLabels();
+    private static final int LOW_ENERGY = 20;
+    private static final int MEDIUM_ENERGY = 50;
+    private static final RectangleRenderable LOW_BAR = new RectangleRenderable(Color.RED);
+    private static final RectangleRenderable MEDIUM_BAR = new RectangleRenderable(Color.YELLOW);
+    private static final RectangleRenderable HIGH_BAR = new RectangleRenderable(Color.GREEN);
+
+    private final DoubleSupplier callback;
+    private final DisplayMode mode;
+    private final TextRenderable text;
+    private final Vector2[] barDimensions;
+    private int displayedStep = -1;
 
     /**
-     * Constructor for creating an energy level indicator.
+     * Constructor for creating an energy level indicator displaying text.
      * @param position The position on the screen where the energy level will be displayed.
      * @param dimensions The size of the text renderable area.
      * @param renderable The text renderable used to display the energy level.
      * @param callback A supplier callback to retrieve the current energy level.
      */
     public EnergyGraphicIndicator(Vector2 position, Vector2 dimensions,
-                                  TextRenderable renderable, Supplier<Double> callback) {
-        super(position, dimensions, renderable);
+                                  TextRenderable renderable, DoubleSupplier callback) {
+        this(position, dimensions, renderable, callback, DisplayMode.TEXT);
+    }
+
+    /**
+     * Constructor for creating an energy level indicator in a given display mode.
+     * @param position The position on the screen where the energy level will be displayed.
+     * @param dimensions The size of the text area, or of the bar when the energy is full.
+     * @param callback A supplier callback to retrieve the current energy level.
+     * @param mode Whether the energy is displayed as text or as a bar.
+     */
+    public EnergyGraphicIndicator(Vector2 position, Vector2 dimensions,
+                                  DoubleSupplier callback, DisplayMode mode) {
+        this(position, dimensions, new TextRenderable(""), callback, mode);
+    }
+
+    /**
+     * Constructor shared by both display modes.
+     * @param position The position on the screen where the energy level will be displayed.
+     * @param dimensions The size of the text area, or of the bar when the energy is full.
+     * @param text The text renderable used in text mode.
+     * @param callback A supplier callback to retrieve the current energy level.
+     * @param mode Whether the energy is displayed as text or as a bar.
+     */
+    private EnergyGraphicIndicator(Vector2 position, Vector2 dimensions, TextRenderable text,
+                                   DoubleSupplier callback, DisplayMode mode) {
+        super(position, dimensions, mode == DisplayMode.TEXT ? text : HIGH_BAR);
         this.callback = callback;
-        updateText();
+        this.mode = mode;
+        this.text = text;
+        this.barDimensions = mode == DisplayMode.BAR ? createBarDimensions(dimensions) : null;
+        updateDisplay();
     }
 
     /**
-     * Updates the display text with the current energy level on each frame.
+     * Updates the display with the current energy level on each frame, if it changed.
      * @param deltaTime The time elapsed since the last frame, in seconds.
      */
     @Override
     public void update(float deltaTime) {
         super.update(deltaTime);
-        updateText();
+        updateDisplay();
+    }
+
+    /**
+     * @return How the energy level is displayed.
+     */
+    public DisplayMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Retrieves the current energy level using the callback and updates the text or the bar to
+     * display this value. Nothing is changed while the displayed value stays the same.
+     */
+    private void updateDisplay() {
+        double currentEnergy = callback.getAsDouble();
+        int step = (int) Math.round(currentEnergy * STEPS_PER_UNIT);
+        step = Math.max(0, Math.min(STEP_COUNT, step));
+        if (step == displayedStep) {
+            return;
+        }
+        displayedStep = step;
+        if (mode == DisplayMode.TEXT) {
+            text.setString(LABELS[step]);
+        } else {
+            setDimensions(barDimensions[step]);
+            renderer().setRenderable(barFor(step));
+        }
+    }
+
+    /**
+     * Picks the bar color matching an energy level.
+     * @param step The energy level, in display steps.
+     * @return The shared renderable of the bar.
+     */
+    private static RectangleRenderable barFor(int step) {
+        if (step <= LOW_ENERGY * STEPS_PER_UNIT) {
+            return LOW_BAR;
+        }
+        return step <= MEDIUM_ENERGY * STEPS_PER_UNIT ? MEDIUM_BAR : HIGH_BAR;
+    }
+
+    /**
+     * Formats the label of every displayable energy level, as "energy%".
+     * @return The labels, indexed by display step.
+     */
+    private static String[] createLabels() {
+        String[] labels = new String[STEP_COUNT + 1];
+        for (int step = 0; step <= STEP_COUNT; step++) {
+            labels[step] = ((double) step / STEPS_PER_UNIT) + "%";
+        }
+        return labels;
     }
 
     /**
-     * Retrieves the current energy level using the callback and updates the text renderable
-     * to display this value.
+     * Calculates the bar size of every displayable energy level.
+     * @param fullDimensions The size of the bar when the energy is full.
+     * @return The bar sizes, indexed by display step.
      */
-    private void updateText() {
-        double currentEnergy = callback.get();
-        TextRenderable renderedText = new TextRenderable(currentEnergy + "%");
-        this.renderer().setRenderable(renderedText);
+    private static Vector2[] createBarDimensions(Vector2 fullDimensions) {
+        Vector2[] dimensions = new Vector2[STEP_COUNT + 1];
+        for (int step = 0; step <= STEP_COUNT; step++) {
+            dimensions[step] = new Vector2(fullDimensions.x() * step / STEP_COUNT, fullDimensions.y());
+        }
+        return dimensions;
     }
 }
@@ -0,0 +1,204 @@
+package pepse;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.util.Vector2;
+
+import pepse.util.FixedTimestep;
+import pepse.util.FrameProfiler;
+import pepse.world.Avatar;
+import pepse.world.Terrain;
+
+import java.util.Locale;
+
+/**
+ * Runs the world without a window, a camera or a user, for load tests and continuous
+ * integration. The world is advanced with a fixed timestep, as fast as the CPU allows, while the
+ * avatar follows a scripted input, and the simulation periodically reports the ticks per second,
+ * the allocation rate and the number of live objects.
+ * The engine's collision handling needs a running game, so the simulation keeps the avatar on the
+ * ground itself instead, and fruits are not eaten.
+ * Every tick is recorded by the world's frame profiler, whose most recent frames can be exported,
+ * to compare builds under the same scripted run.
+ * Usage: {@code java pepse.HeadlessSimulation [simulated minutes] [seed] [report interval in seconds]
+ * [profile path]}
+ */
+public class HeadlessSimulation {
+    // the same step the game simulates in, so both run the same game logic
+    private static final float TIME_STEP = FixedTimestep.DEFAULT_STEP;
+    private static final Vector2 VIEW_DIMENSIONS = new Vector2(1024, 768);
+    private static final double DEFAULT_SIMULATED_MINUTES = 10;
+    private static final double DEFAULT_REPORT_INTERVAL = 60;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final GameObjectCollection gameObjects = new GameObjectCollection();
+    private final ScriptedInput input = ScriptedInput.wander();
+    private final PepseWorld world;
+    private long ticks;
+
+    /**
+     * Creates the world to simulate.
+     * @param seed The seed of the world.
+     */
+    public HeadlessSimulation(int seed) {
+        world = new PepseWorld(gameObjects, VIEW_DIMENSIONS, seed, input, null);
+        world.streamAround(minViewX(), maxViewX());
+    }
+
+    /**
+     * Advances the simulation by one fixed timestep: the scripted input, every game object,
+     * the avatar's footing and the world's game logic.
+     */
+    public void tick() {
+        FrameProfiler profiler = world.getProfiler();
+        profiler.beginFrame();
+        input.advance(TIME_STEP);
+        long updateStartNanos = System.nanoTime();
+        for (GameObject gameObject : gameObjects) {
+            gameObject.update(TIME_STEP);
+        }
+        keepAvatarOnGround();
+        profiler.add(FrameProfiler.Section.ENGINE_UPDATE, System.nanoTime() - updateStartNanos);
+        world.update(TIME_STEP, minViewX(), maxViewX());
+        profiler.endFrame();
+        ticks++;
+    }
+
+    /**
+     * Runs the simulation, printing a report line at every interval of simulated time.
+     * @param simulatedSeconds How long to simulate, in seconds of game time.
+     * @param reportInterval The simulated time between two reports, in seconds.
+     */
+    public void run(double simulatedSeconds, double reportInterval) {
+        long firstTick = ticks;
+        long lastTick = firstTick + (long) Math.ceil(simulatedSeconds / TIME_STEP);
+        long ticksPerReport = Math.max(1, Math.round(reportInterval / TIME_STEP));
+        long startNanos = System.nanoTime();
+        long startBytes = FrameProfiler.allocatedBytes();
+        long reportTicks = ticks;
+        long reportNanos = startNanos;
+        long reportBytes = startBytes;
+        System.out.println("simulated_s,ticks_per_s,alloc_mb_per_s,game_objects,live_chunks,"
+                + "active_chunks,active_colliders,jump_observers,animated_leaves,scheduled_tasks,"
+                + "heap_mb,avatar_x");
+        while (ticks < lastTick) {
+            tick();
+            if ((ticks - firstTick) % ticksPerReport == 0 || ticks == lastTick) {
+                long nanos = System.nanoTime();
+                long bytes = FrameProfiler.allocatedBytes();
+                report(ticks - reportTicks, nanos - reportNanos,
+                        bytes < 0 ? -1 : bytes - reportBytes);
+                reportTicks = ticks;
+                reportNanos = nanos;
+                reportBytes = bytes;
+            }
+        }
+        double seconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+        System.out.printf(Locale.ROOT, "# %d ticks in %.2fs: %.0f ticks/s, %.2f MB/s allocated%n",
+                ticks - firstTick, seconds, (ticks - firstTick) / seconds,
+                (FrameProfiler.allocatedBytes() - startBytes) / seconds / (1024 * 1024));
+        System.out.println("# block pool: " + world.getTerrain().getBlockPool());
+        System.out.println("# tile map pool: " + world.getTerrain().getTileMapPool());
+        System.out.println("# trunk pool: " + world.getFlora().getTrunkPool());
+        System.out.println("# leaves pool: " + world.getFlora().getLeavesPool());
+        System.out.println("# fruits pool: " + world.getFlora().getFruitsPool());
+    }
+
+    /**
+     * @return The number of simulated ticks so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return The simulated world.
+     */
+    public PepseWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Prints one CSV line describing the last interval and the current state of the world.
+     * @param intervalTicks The number of ticks in the interval.
+     * @param intervalNanos The wall-clock duration of the interval.
+     * @param intervalBytes The bytes allocated by the simulation during the interval, or a
+     *                      negative value if the JVM cannot measure it.
+     */
+    private void report(long intervalTicks, long intervalNanos, long intervalBytes) {
+        double seconds = Math.max(intervalNanos, 1) / NANOS_PER_SECOND;
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf(Locale.ROOT, "%.1f,%.0f,%.2f,%d,%d,%d,%d,%d,%d,%d,%.1f,%.0f%n",
+                ticks * TIME_STEP,
+                intervalTicks / seconds,
+                intervalBytes < 0 ? -1 : intervalBytes / seconds / (1024 * 1024),
+                countGameObjects(),
+                world.getChunkManager().getLiveChunkCount(),
+                world.getChunkManager().getActiveChunkCount(),
+                world.getCollisionGrid().getActiveCount(),
+                world.getAvatar().getObserverIndex().size(),
+                world.getLeafAnimator().size(),
+                world.getScheduler().size(),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024),
+                world.getAvatar().getCenter().x());
+    }
+
+    /**
+     * Stands in for the engine's collisions with the ground: a falling avatar that reaches the
+     * surface of the terrain is placed on top of it and stops falling.
+     */
+    private void keepAvatarOnGround() {
+        Avatar avatar = world.getAvatar();
+        Terrain terrain = world.getTerrain();
+        Vector2 topLeft = avatar.getTopLeftCorner();
+        float groundY = terrain.groundHeightAt(avatar.getCenter().x());
+        float height = avatar.getDimensions().y();
+        if (topLeft.y() + height >= groundY && avatar.getVelocity().y() >= 0) {
+            avatar.setTopLeftCorner(new Vector2(topLeft.x(), groundY - height));
+            avatar.transform().setVelocityY(0);
+        }
+    }
+
+    /**
+     * @return The number of objects currently in the game.
+     */
+    private int countGameObjects() {
+        int count = 0;
+        for (GameObject ignored : gameObjects) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The left edge of the simulated view, centered on the avatar.
+     */
+    private float minViewX() {
+        return world.getAvatar().getCenter().x() - VIEW_DIMENSIONS.x() / 2;
+    }
+
+    /**
+     * @return The right edge of the simulated view, centered on the avatar.
+     */
+    private float maxViewX() {
+        return minViewX() + VIEW_DIMENSIONS.x();
+    }
+
+    /**
+     * The entry point of the headless simulation.
+     * @param args Optionally the number of minutes to simulate, the seed of the world, the
+     *             simulated seconds between two reports, and the path (without extension) of the
+     *             CSV and JSON files the recorded frames are exported to.
+     */
+    public static void main(String[] args) {
+        double minutes = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_SIMULATED_MINUTES;
+        int seed = args.length > 1 ? Integer.parseInt(args[1]) : PepseGameManager.WORLD_SEED;
+        double reportInterval = args.length > 2 ? Double.parseDouble(args[2])
+                : DEFAULT_REPORT_INTERVAL;
+        HeadlessSimulation simulation = new HeadlessSimulation(seed);
+        simulation.run(minutes * 60, reportInterval);
+        if (args.length > 3) {
+            PepseGameManager.exportProfile(simulation.getWorld().getProfiler(), args[3]);
+        }
+    }
+}
@@ -1,38 +1,62 @@
 package pepse;
 
-import java.util.List;
 import danogl.GameObject;
 import danogl.GameManager;
-import java.util.ArrayList;
 import danogl.util.Vector2;
 import danogl.gui.ImageReader;
 import danogl.gui.SoundReader;
 import danogl.collisions.Layer;
 import danogl.gui.WindowController;
+import danogl.gui.rendering.Camera;
+import danogl.components.CoordinateSpace;
 import danogl.gui.UserInputListener;
 import danogl.gui.rendering.TextRenderable;
 
-import pepse.world.Sky;
-import pepse.world.Block;
+import pepse.util.FixedTimestep;
+import pepse.util.FrameProfiler;
 import pepse.world.Avatar;
-import pepse.world.Terrain;
-import pepse.world.trees.Trunk;
-import pepse.world.trees.Flora;
-import pepse.world.trees.Fruits;
-import pepse.world.trees.Leaves;
-import pepse.world.daynight.Sun;
-import pepse.world.daynight.Night;
-import pepse.world.daynight.SunHalo;
+import pepse.world.AvatarInput;
+import pepse.world.daynight.DayNightSky;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 
 /**
  * Manages the game environment for Pepse, setting up the world including the sky, terrain,
  * flora, and game characters like the avatar and the sun. It handles the creation and addition
- * of these elements to the game at the start.
+ * of these elements to the game at the start, and streams terrain and flora around the avatar
+ * as it moves through the world.
+ * The game logic runs in fixed simulation steps, decoupled from the frame rate: every frame
+ * simulates as many whole steps as the time since the last frame holds, carrying the rest to the
+ * next frame.
  */
 public class PepseGameManager extends GameManager{
-    private Terrain terrain;
-    private Flora flora; // Declare Flora as a class-level variable
+    // the terrain and flora are fully determined by this seed
+    static final int WORLD_SEED = 120;
+    // the duration of a whole day and night, in seconds
+    private static final float DAY_CYCLE_LENGTH = 30;
+    // the terrain, flora and avatar, shared with the headless simulation
+    private PepseWorld world;
+    private Vector2 windowDimensions;
+    private UserInputListener inputListener;
+    private ProfilerOverlay profilerOverlay;
+    private boolean overlayKeyWasPressed;
+    private boolean exportKeyWasPressed;
+    private boolean saveKeyWasPressed;
+    private static final int TOGGLE_OVERLAY_KEY = KeyEvent.VK_F3;
+    private static final int EXPORT_PROFILE_KEY = KeyEvent.VK_F4;
+    private static final int SAVE_KEY = KeyEvent.VK_F5;
+    // the saved worlds, one subdirectory per seed
+    private static final String SAVES_DIRECTORY = "saves";
+    // a frame taking longer than this many steps slows the game down instead of catching up
+    private static final int MAX_STEPS_PER_FRAME = 10;
+    private final FixedTimestep timestep =
+            new FixedTimestep(FixedTimestep.DEFAULT_STEP, MAX_STEPS_PER_FRAME);
 
     /**
      * Initializes the game by setting up the game environment including the sky, terrain, day-night cycle,
@@ -49,76 +73,125 @@ public class PepseGameManager extends GameManager{
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
         windowController.setTargetFramerate(60);
 
-        // add sky
-        GameObject sky = Sky.create(windowController.getWindowDimensions());
-        gameObjects().addGameObject(sky, Layer.BACKGROUND);
-
-        // add ground
-        terrain = new Terrain(windowController.getWindowDimensions(), 120);
-        List<Block> ground = terrain.createInRange(0, (int) windowController.getWindowDimensions().x());
-        for (Block block: ground) {
-            gameObjects().addGameObject(block, Layer.STATIC_OBJECTS);
+        windowDimensions = windowController.getWindowDimensions();
+        this.inputListener = inputListener;
+
+        // add the sky, with the sun and the day-night cycle
+        gameObjects().addGameObject(new DayNightSky(windowDimensions, DAY_CYCLE_LENGTH),
+                Layer.BACKGROUND);
+
+        // create the world and add the avatar, terrain and flora are streamed in by the world
+        world = new PepseWorld(gameObjects(), windowDimensions, WORLD_SEED,
+                AvatarInput.of(inputListener), imageReader);
+        try {
+            world.enablePersistence(Paths.get(SAVES_DIRECTORY, "world-" + WORLD_SEED));
+        } catch (IOException e) {
+            System.err.println("Failed to open the saved world, it won't be saved: "
+                    + e.getMessage());
         }
+        Avatar avatar = world.getAvatar();
 
-        // add night
-        GameObject night = Night.create(windowController.getWindowDimensions(), 30);
-        gameObjects().addGameObject(night, Layer.BACKGROUND);
-
-        // add sun
-        GameObject sun = Sun.create(windowController.getWindowDimensions(),30);
-        gameObjects().addGameObject(sun, Layer.BACKGROUND);
-
-        // add sun halo
-        GameObject sunHalo = SunHalo.create(sun);
-        gameObjects().addGameObject(sunHalo, Layer.BACKGROUND);
-
-        // add avatar
-        Vector2 avatarInitialLocation = new Vector2(0,
-                terrain.groundHeightAt(0)-Avatar.AVATAR_SIZE.x());
-        Avatar avatar = new Avatar(avatarInitialLocation,
-                inputListener, imageReader);
-        gameObjects().addGameObject(avatar);
+        // follow the avatar on both axes, horizontally centered and at the height of the screen it
+        // starts at: the view starts at the world's top and then moves up and down with the avatar
+        setCamera(new Camera(avatar,
+                new Vector2(0, windowDimensions.y() / 2 - avatar.getCenter().y()),
+                windowDimensions, windowDimensions));
 
         // energy display
         GameObject energyCounter = new EnergyGraphicIndicator(new Vector2(20,20),
                 new Vector2(20, 20), new TextRenderable(""), avatar::getCurEnergy);
+        energyCounter.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
         gameObjects().addGameObject(energyCounter, Layer.UI);
 
-        //add flora, all plants related elements
-        flora = new Flora(avatar);
-        SetupAndAddFlora(windowController);
+        // frame profiler display, toggled by F3, below the energy display
+        profilerOverlay = new ProfilerOverlay(new Vector2(20, 50), world.getProfiler());
+        profilerOverlay.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        gameObjects().addGameObject(profilerOverlay, Layer.UI);
+
+        // stream ground and flora in chunks around the avatar
+        world.streamAround(visibleMinX(), visibleMaxX());
     }
 
     /**
-     * Separates and adds flora objects into the game, organizing them into different layers
-     * based on their type
-     * (trunks, leaves, fruits) to ensure correct rendering order.
-     * @param windowController Controls the game window properties.
+     * Updates the game each frame, in as many fixed simulation steps as became due: every step
+     * updates the game objects and the engine's collisions, runs due scheduled tasks, animates
+     * the visible leaves and streams chunks in and out around the camera's view. Only the colliders around the avatar
+     * are kept in colliding layers. Every frame is recorded by the world's profiler; F3 toggles its
+     * overlay and F4 exports the recorded frames. F5 saves the world, which is also saved
+     * periodically.
+     * The engine draws every object where its last step left it, so motion is at most one step
+     * behind the rendered frame.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     */
+    @Override
+    public void update(float deltaTime) {
+        FrameProfiler profiler = world.getProfiler();
+        profiler.beginFrame();
+        int steps = timestep.advance(deltaTime);
+        for (int step = 0; step < steps; step++) {
+            long engineStartNanos = System.nanoTime();
+            super.update(timestep.getStep());
+            profiler.add(FrameProfiler.Section.ENGINE_UPDATE, System.nanoTime() - engineStartNanos);
+            world.update(timestep.getStep(), visibleMinX(), visibleMaxX());
+        }
+        handleKeys();
+        profiler.endFrame();
+    }
+
+    /**
+     * Toggles the profiler overlay, exports the recorded frames and saves the world when their
+     * keys are pressed, once per key press.
+     */
+    private void handleKeys() {
+        boolean overlayKeyPressed = inputListener.isKeyPressed(TOGGLE_OVERLAY_KEY);
+        if (overlayKeyPressed && !overlayKeyWasPressed) {
+            profilerOverlay.toggle();
+        }
+        overlayKeyWasPressed = overlayKeyPressed;
+
+        boolean exportKeyPressed = inputListener.isKeyPressed(EXPORT_PROFILE_KEY);
+        if (exportKeyPressed && !exportKeyWasPressed) {
+            exportProfile(world.getProfiler(), "pepse-profile-" + System.currentTimeMillis());
+        }
+        exportKeyWasPressed = exportKeyPressed;
+
+        boolean saveKeyPressed = inputListener.isKeyPressed(SAVE_KEY);
+        if (saveKeyPressed && !saveKeyWasPressed) {
+            world.trySave();
+        }
+        saveKeyWasPressed = saveKeyPressed;
+    }
+
+    /**
+     * Writes the frames recorded by a profiler next to each other as CSV and JSON files.
+     * @param profiler The profiler to export.
+     * @param basePath The path of the files, without their extensions.
      */
-    private void SetupAndAddFlora(WindowController windowController) {
-        flora.setGroundHeightProvider(x -> (int) terrain.groundHeightAt(x));
-        int minX = Block.BLOCK_SIZE;
-        int maxX = (int) windowController.getWindowDimensions().x();
-        List<GameObject> floraObjects = flora.createInRange(minX, maxX);
-
-        // Separate the flora objects by type
-        List<GameObject> trunks = new ArrayList<>();
-        List<GameObject> leaves = new ArrayList<>();
-        List<GameObject> fruits = new ArrayList<>();
-
-        for (GameObject floraObject : floraObjects) {
-            if (floraObject instanceof Trunk) {
-                trunks.add(floraObject);
-            } else if (floraObject instanceof Leaves) {
-                leaves.add(floraObject);
-            } else if (floraObject instanceof Fruits) {
-                fruits.add(floraObject);
-            }
+    static void exportProfile(FrameProfiler profiler, String basePath) {
+        Path csvPath = Paths.get(basePath + ".csv");
+        Path jsonPath = Paths.get(basePath + ".json");
+        try (Writer csv = Files.newBufferedWriter(csvPath);
+             Writer json = Files.newBufferedWriter(jsonPath)) {
+            profiler.writeCsv(csv);
+            profiler.writeJson(json);
+            System.out.println("Profile exported to " + csvPath.toAbsolutePath() + " and " + jsonPath);
+        } catch (IOException e) {
+            System.err.println("Failed to export the profile: " + e.getMessage());
         }
-        // Add trunks first, then leaves, then fruits
-        trunks.forEach(trunk -> gameObjects().addGameObject(trunk, Layer.STATIC_OBJECTS));
-        leaves.forEach(leaf -> gameObjects().addGameObject(leaf, Layer.STATIC_OBJECTS));
-        fruits.forEach(fruit -> gameObjects().addGameObject(fruit, Layer.STATIC_OBJECTS));
+    }
+
+    /**
+     * @return The left edge of the part of the world seen by the camera.
+     */
+    private float visibleMinX() {
+        return camera().getTopLeftCorner().x();
+    }
+
+    /**
+     * @return The right edge of the part of the world seen by the camera.
+     */
+    private float visibleMaxX() {
+        return visibleMinX() + camera().getDimensions().x();
     }
 
     /**
@@ -0,0 +1,268 @@
+package pepse;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.gui.ImageReader;
+import danogl.util.Vector2;
+
+import pepse.util.FrameProfiler;
+import pepse.util.FrameScheduler;
+import pepse.world.Avatar;
+import pepse.world.Block;
+import pepse.world.AvatarInput;
+import pepse.world.ChunkManager;
+import pepse.world.CollisionGrid;
+import pepse.world.Terrain;
+import pepse.world.TileMap;
+import pepse.world.WorldStore;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Fruits;
+import pepse.world.trees.LeafAnimator;
+import pepse.world.trees.Leaves;
+import pepse.world.trees.Trunk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The simulated part of the game: the terrain and flora streamed around the view, the avatar,
+ * and the game logic driven by frame updates. It knows nothing about windows, cameras or the
+ * user interface, so the same world runs inside the game and in a headless simulation.
+ * Once persistence is enabled, the world is saved to a directory periodically and on demand, and
+ * comes back from it as it was left.
+ */
+public class PepseWorld {
+    private static final float LOAD_DISTANCE_IN_WINDOWS = 1;
+    private static final float UNLOAD_DISTANCE_IN_WINDOWS = 2;
+    // how far beyond the view chunks stay in the game
+    private static final float CULL_MARGIN = ChunkManager.DEFAULT_CHUNK_WIDTH / 2f;
+    // how many blocks around the avatar stay in colliding layers
+    private static final int COLLISION_MARGIN_IN_BLOCKS = 2;
+    // chunk data is generated on these threads, leaving at least one core to the game thread
+    private static final int GENERATION_THREADS =
+            Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    // the time the game thread may spend building generated chunks in a frame
+    private static final float BUILD_BUDGET_MILLIS = 2;
+    // five minutes of frames at 60 frames per second
+    private static final int PROFILED_FRAMES = 60 * 60 * 5;
+    // game time in seconds between two automatic saves
+    private static final float AUTOSAVE_INTERVAL = 30;
+
+    private final Terrain terrain;
+    private final Flora flora;
+    private final Avatar avatar;
+    private final CollisionGrid collisionGrid;
+    private final ChunkManager chunkManager;
+    // runs delayed game logic, such as fruit respawns, on the game thread
+    private final FrameScheduler scheduler = new FrameScheduler();
+    private final LeafAnimator leafAnimator = new LeafAnimator(Leaves.LEAF_SIZE);
+    private final FrameProfiler profiler = new FrameProfiler(PROFILED_FRAMES);
+    private long lastJumpNotifyNanos;
+    private final int seed;
+    // the saved world, or null while persistence is disabled
+    private WorldStore worldStore;
+    private float timeSinceSave;
+
+    /**
+     * Creates the world and adds its avatar to the game. Chunks are only generated by the first
+     * call to {@link #update} or {@link #streamAround}.
+     * @param gameObjects The game's object collection.
+     * @param windowDimensions The dimensions of the view, which determine the terrain's base
+     *                         height and how far around the view chunks are streamed.
+     * @param seed The seed the terrain and flora are fully determined by.
+     * @param input The source of the keys controlling the avatar.
+     * @param imageReader Utility to read the avatar's images, or null to run without graphics.
+     */
+    public PepseWorld(GameObjectCollection gameObjects, Vector2 windowDimensions, int seed,
+                      AvatarInput input, ImageReader imageReader) {
+        this.seed = seed;
+        terrain = new Terrain(windowDimensions, seed);
+
+        Vector2 avatarInitialLocation = new Vector2(0,
+                terrain.groundHeightAt(0) - Avatar.AVATAR_SIZE.x());
+        avatar = new Avatar(avatarInitialLocation, input, imageReader, false);
+        avatar.setJumpNotificationRadius(windowDimensions.x() / 2);
+        gameObjects.addGameObject(avatar);
+
+        flora = new Flora(avatar, scheduler, leafAnimator, seed);
+        flora.setGroundHeightProvider(terrain);
+
+        collisionGrid = new CollisionGrid(gameObjects, COLLISION_MARGIN_IN_BLOCKS);
+        chunkManager = new ChunkManager(gameObjects, collisionGrid, terrain, flora,
+                ChunkManager.DEFAULT_CHUNK_WIDTH, windowDimensions.x() * LOAD_DISTANCE_IN_WINDOWS,
+                windowDimensions.x() * UNLOAD_DISTANCE_IN_WINDOWS, CULL_MARGIN);
+        chunkManager.setGenerationPipeline(createGenerationExecutor(), BUILD_BUDGET_MILLIS);
+        chunkManager.setProfiler(profiler);
+    }
+
+    /**
+     * Advances the world's game logic by one frame: runs due scheduled tasks, animates the
+     * visible leaves and streams chunks around the view. The game objects themselves are updated
+     * by the engine (or the simulation) before this is called.
+     * The time spent and the number of live objects are recorded in the world's profiler, within
+     * the frame its caller started.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     * @param minVisibleX The left edge of the view.
+     * @param maxVisibleX The right edge of the view.
+     */
+    public void update(float deltaTime, float minVisibleX, float maxVisibleX) {
+        long startNanos = System.nanoTime();
+        scheduler.advance(deltaTime);
+        leafAnimator.update(deltaTime, minVisibleX, maxVisibleX);
+        streamAround(minVisibleX, maxVisibleX);
+        if (worldStore != null) {
+            timeSinceSave += deltaTime;
+            if (timeSinceSave >= AUTOSAVE_INTERVAL) {
+                trySave();
+            }
+        }
+        profiler.add(FrameProfiler.Section.WORLD_UPDATE, System.nanoTime() - startNanos);
+        sampleProfilerCounters();
+    }
+
+    /**
+     * Saves the world to a directory from now on, and restores the avatar's position and energy
+     * and every chunk saved there before. Should be called before chunks are first streamed in.
+     * @param directory The directory of the saved world, one per seed.
+     * @throws IOException If the directory or the saved avatar could not be read.
+     */
+    public void enablePersistence(Path directory) throws IOException {
+        worldStore = new WorldStore(directory, seed, chunkManager.getChunkWidth(),
+                terrain.getBaseHeight());
+        WorldStore.AvatarState avatarState = worldStore.loadAvatar();
+        if (avatarState != null) {
+            avatar.setTopLeftCorner(new Vector2(avatarState.getX(), avatarState.getY()));
+            avatar.setCurEnergy(avatarState.getEnergy());
+        }
+        chunkManager.setWorldStore(worldStore);
+    }
+
+    /**
+     * Saves the avatar and every chunk that changed since it was last saved. Does nothing while
+     * persistence is disabled.
+     * @return The number of chunks saved.
+     * @throws IOException If the world could not be saved.
+     */
+    public int save() throws IOException {
+        if (worldStore == null) {
+            return 0;
+        }
+        timeSinceSave = 0;
+        Vector2 avatarPosition = avatar.getTopLeftCorner();
+        worldStore.saveAvatar(avatarPosition.x(), avatarPosition.y(), avatar.getCurEnergy());
+        int savedChunks = chunkManager.saveDirtyChunks();
+        worldStore.flush();
+        return savedChunks;
+    }
+
+    /**
+     * Saves the world, reporting a failure instead of throwing it.
+     */
+    public void trySave() {
+        try {
+            save();
+        } catch (IOException e) {
+            System.err.println("Failed to save the world: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams chunks in and out around the view, and keeps only the colliders around the
+     * avatar in colliding layers.
+     * @param minVisibleX The left edge of the view.
+     * @param maxVisibleX The right edge of the view.
+     */
+    public void streamAround(float minVisibleX, float maxVisibleX) {
+        chunkManager.update(minVisibleX, maxVisibleX);
+        collisionGrid.update(avatar.getTopLeftCorner(), avatar.getDimensions());
+    }
+
+    /**
+     * Records the jump notification time of the frame and the number of live objects.
+     */
+    private void sampleProfilerCounters() {
+        long jumpNotifyNanos = avatar.getObserverIndex().getTotalDispatchNanos();
+        profiler.add(FrameProfiler.Section.JUMP_NOTIFY, jumpNotifyNanos - lastJumpNotifyNanos);
+        lastJumpNotifyNanos = jumpNotifyNanos;
+        profiler.set(FrameProfiler.Counter.TILE_MAPS, chunkManager.countActive(TileMap.class));
+        profiler.set(FrameProfiler.Counter.SURFACE_COLLIDERS,
+                chunkManager.countActive(Block.class));
+        profiler.set(FrameProfiler.Counter.TRUNKS, chunkManager.countActive(Trunk.class));
+        profiler.set(FrameProfiler.Counter.LEAVES, chunkManager.countActive(Leaves.class));
+        profiler.set(FrameProfiler.Counter.FRUITS, chunkManager.countActive(Fruits.class));
+        profiler.set(FrameProfiler.Counter.ACTIVE_COLLIDERS, collisionGrid.getActiveCount());
+        profiler.set(FrameProfiler.Counter.LIVE_CHUNKS, chunkManager.getLiveChunkCount());
+    }
+
+    /**
+     * Creates the worker threads generating chunk data. They are daemon threads, so they never
+     * keep the game from exiting.
+     * @return The executor generating chunk data.
+     */
+    private static ExecutorService createGenerationExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(GENERATION_THREADS, task -> {
+            Thread thread = new Thread(task, "pepse-generation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return The profiler recording the world's frames.
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @return The terrain of the world.
+     */
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * @return The flora of the world.
+     */
+    public Flora getFlora() {
+        return flora;
+    }
+
+    /**
+     * @return The avatar of the world.
+     */
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * @return The grid of the colliders in the game.
+     */
+    public CollisionGrid getCollisionGrid() {
+        return collisionGrid;
+    }
+
+    /**
+     * @return The manager of the generated chunks.
+     */
+    public ChunkManager getChunkManager() {
+        return chunkManager;
+    }
+
+    /**
+     * @return The scheduler running the world's delayed tasks.
+     */
+    public FrameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return The animator of the world's leaves.
+     */
+    public LeafAnimator getLeafAnimator() {
+        return leafAnimator;
+    }
+}
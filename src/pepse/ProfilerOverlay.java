@@ -0,0 +1,137 @@
+package pepse;
+
+import danogl.GameObject;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.util.FrameProfiler;
+import pepse.util.FrameProfiler.Counter;
+import pepse.util.FrameProfiler.Section;
+
+import java.awt.*;
+import java.util.Locale;
+
+/**
+ * A toggleable overlay summarizing the frame profiler: the average time of every section and
+ * the live object counts over the last second, next to the energy indicator.
+ * The text is refreshed a few times per second while the overlay is shown, and nothing is
+ * formatted while it is hidden, so a hidden overlay costs nothing.
+ */
+public class ProfilerOverlay extends GameObject {
+    private static final float REFRESH_PERIOD = 0.5f;
+    // frames averaged by the overlay, one second at 60 frames per second
+    private static final int AVERAGED_FRAMES = 60;
+    private static final int LINE_HEIGHT = 16;
+    private static final Vector2 DIMENSIONS = new Vector2(480, LINE_HEIGHT * 4);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+    private static final Color TEXT_COLOR = Color.BLACK;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final FrameProfiler profiler;
+    private final String[] lines = new String[(int) DIMENSIONS.y() / LINE_HEIGHT];
+    private boolean shown;
+    private float timeSinceRefresh = REFRESH_PERIOD;
+
+    /**
+     * Constructs a hidden overlay.
+     * @param position The position of the overlay's top-left corner on the screen.
+     * @param profiler The profiler whose frames are summarized.
+     */
+    public ProfilerOverlay(Vector2 position, FrameProfiler profiler) {
+        super(position, DIMENSIONS, null);
+        this.profiler = profiler;
+        renderer().setRenderable(new LinesRenderable());
+    }
+
+    /**
+     * Shows the overlay if it is hidden, and hides it otherwise.
+     */
+    public void toggle() {
+        shown = !shown;
+        timeSinceRefresh = REFRESH_PERIOD;
+    }
+
+    /**
+     * @return Whether the overlay is shown.
+     */
+    public boolean isShown() {
+        return shown;
+    }
+
+    /**
+     * Refreshes the summary periodically while the overlay is shown.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     */
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        if (!shown) {
+            return;
+        }
+        timeSinceRefresh += deltaTime;
+        if (timeSinceRefresh >= REFRESH_PERIOD) {
+            timeSinceRefresh = 0;
+            refresh();
+        }
+    }
+
+    /**
+     * Formats the averages of the most recent frames into the overlay's lines.
+     */
+    private void refresh() {
+        double frameMillis = profiler.averageMillis(Section.FRAME, AVERAGED_FRAMES);
+        lines[0] = String.format(Locale.ROOT, "frame %.2f ms (%.0f fps)  render+idle %.2f ms",
+                frameMillis, frameMillis > 0 ? 1000 / frameMillis : 0,
+                profiler.averageMillis(Section.RENDER_AND_IDLE, AVERAGED_FRAMES));
+        lines[1] = String.format(Locale.ROOT, "engine %.2f ms  world %.2f ms  jump %.3f ms",
+                profiler.averageMillis(Section.ENGINE_UPDATE, AVERAGED_FRAMES),
+                profiler.averageMillis(Section.WORLD_UPDATE, AVERAGED_FRAMES),
+                profiler.averageMillis(Section.JUMP_NOTIFY, AVERAGED_FRAMES));
+        lines[2] = String.format(Locale.ROOT, "terrain %.3f ms  flora %.3f ms  chunks %.0f",
+                profiler.averageMillis(Section.TERRAIN_BUILD, AVERAGED_FRAMES),
+                profiler.averageMillis(Section.FLORA_BUILD, AVERAGED_FRAMES),
+                profiler.average(Counter.LIVE_CHUNKS, AVERAGED_FRAMES));
+        double bytesPerFrame = profiler.average(Counter.ALLOCATED_BYTES, AVERAGED_FRAMES);
+        lines[3] = String.format(Locale.ROOT,
+                "tile maps %.0f surface %.0f trunks %.0f leaves %.0f fruits %.0f colliders %.0f"
+                        + "  alloc %.2f MB/s",
+                profiler.average(Counter.TILE_MAPS, AVERAGED_FRAMES),
+                profiler.average(Counter.SURFACE_COLLIDERS, AVERAGED_FRAMES),
+                profiler.average(Counter.TRUNKS, AVERAGED_FRAMES),
+                profiler.average(Counter.LEAVES, AVERAGED_FRAMES),
+                profiler.average(Counter.FRUITS, AVERAGED_FRAMES),
+                profiler.average(Counter.ACTIVE_COLLIDERS, AVERAGED_FRAMES),
+                frameMillis > 0 ? bytesPerFrame / BYTES_PER_MEGABYTE * 1000 / frameMillis : 0);
+    }
+
+    /**
+     * Draws the overlay's lines, one below the other, while the overlay is shown.
+     */
+    private class LinesRenderable implements Renderable {
+        /**
+         * Draws the lines of the overlay.
+         * @param g The graphics to draw with.
+         * @param topLeftCorner The top-left corner of the overlay on the screen.
+         * @param dimensions The dimensions of the overlay, unused as the font sets the text's size.
+         * @param degreesCounterClockwise Unused, the overlay is never rotated.
+         * @param isFlippedHorizontally Unused, the overlay is never flipped.
+         * @param isFlippedVertically Unused, the overlay is never flipped.
+         * @param opaqueness Unused, the overlay is always opaque.
+         */
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            if (!shown) {
+                return;
+            }
+            g.setFont(FONT);
+            g.setColor(TEXT_COLOR);
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i] != null) {
+                    g.drawString(lines[i], topLeftCorner.x(),
+                            topLeftCorner.y() + (i + 1) * LINE_HEIGHT);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pepse;
+
+import pepse.world.AvatarInput;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input replaying a script of timed key presses, looping back to its start when it ends.
+ * Used to drive the avatar in simulations without a window or a user.
+ */
+public class ScriptedInput implements AvatarInput {
+    /** Marks a step of the script during which no key is pressed. */
+    public static final int NO_KEY = -1;
+
+    private final List<Step> steps = new ArrayList<>();
+    private int stepIndex;
+    private float timeInStep;
+
+    /**
+     * Appends a step to the script.
+     * @param keyCode The key held during the step, as in {@link KeyEvent}, or {@link #NO_KEY}.
+     * @param duration How long the key is held, in seconds of game time. Must be positive.
+     * @return This input, so steps can be chained.
+     */
+    public ScriptedInput then(int keyCode, float duration) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Step duration must be positive: " + duration);
+        }
+        steps.add(new Step(keyCode, duration));
+        return this;
+    }
+
+    /**
+     * Creates the default script: the avatar walks right and left, jumps under the trees it
+     * passes and rests from time to time, so it keeps exploring new terrain to the right.
+     * @return The default script.
+     */
+    public static ScriptedInput wander() {
+        return new ScriptedInput()
+                .then(KeyEvent.VK_RIGHT, 3)
+                .then(KeyEvent.VK_SPACE, 0.2f)
+                .then(NO_KEY, 2)
+                .then(KeyEvent.VK_RIGHT, 2)
+                .then(KeyEvent.VK_SPACE, 0.2f)
+                .then(KeyEvent.VK_LEFT, 1)
+                .then(NO_KEY, 1.5f);
+    }
+
+    /**
+     * Advances the script by the time of one frame.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     */
+    public void advance(float deltaTime) {
+        if (steps.isEmpty()) {
+            return;
+        }
+        timeInStep += deltaTime;
+        while (timeInStep >= steps.get(stepIndex).duration) {
+            timeInStep -= steps.get(stepIndex).duration;
+            stepIndex = (stepIndex + 1) % steps.size();
+        }
+    }
+
+    /**
+     * Checks whether the current step of the script holds a key.
+     * @param keyCode The code of the key, as in {@link KeyEvent}.
+     * @return True if the key is pressed.
+     */
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return !steps.isEmpty() && steps.get(stepIndex).keyCode == keyCode;
+    }
+
+    /**
+     * @return True if the current step of the script holds any key.
+     */
+    @Override
+    public boolean isAnyKeyPressed() {
+        return !steps.isEmpty() && steps.get(stepIndex).keyCode != NO_KEY;
+    }
+
+    /**
+     * A key held for some time.
+     */
+    private static final class Step {
+        private final int keyCode;
+        private final float duration;
+
+        /**
+         * Constructs a step.
+         * @param keyCode The key held during the step, or {@link #NO_KEY}.
+         * @param duration How long the key is held, in seconds. Must be positive.
+         */
+        private Step(int keyCode, float duration) {
+            this.keyCode = keyCode;
+            this.duration = duration;
+        }
+    }
+}
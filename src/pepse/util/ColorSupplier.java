@@ -8,7 +8,8 @@ import java.util.Random;
  * @author Dan Nirel
  */
 public final class ColorSupplier {
-    private static final int DEFAULT_COLOR_DELTA = 10;
+    /** The default maximal difference (per channel) between a sampled color and its base color. */
+    public static final int DEFAULT_COLOR_DELTA = 10;
     private final static Random random = new Random();
 
     /**
@@ -36,6 +37,22 @@ public final class ColorSupplier {
                 randomChannelInRange(baseColor.getBlue()-colorDelta, baseColor.getBlue()+colorDelta));
     }
 
+    /**
+     * Returns a color similar to baseColor, with a difference of at most colorDelta, drawn from a
+     * given random generator so that the result is reproducible.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @param colorDelta The maximal difference (per channel) between the sampled color and the base color.
+     * @param random The random generator sampling the channels.
+     * @return A color similar to baseColor.
+     */
+    public static Color approximateColor(Color baseColor, int colorDelta, FastRandom random) {
+        return new Color(
+                channelInRange(baseColor.getRed()-colorDelta, random.nextInt(2*colorDelta+1)),
+                channelInRange(baseColor.getGreen()-colorDelta, random.nextInt(2*colorDelta+1)),
+                channelInRange(baseColor.getBlue()-colorDelta, random.nextInt(2*colorDelta+1)));
+    }
+
     /**
      * This method generates a random value for a color channel within the given range [min, max].
      *
@@ -44,7 +61,18 @@ public final class ColorSupplier {
      * @return A random number in the range [min, max], clipped to [0,255].
      */
     private static int randomChannelInRange(int min, int max) {
-        int channel = random.nextInt(max-min+1) + min;
+        return channelInRange(min, random.nextInt(max-min+1));
+    }
+
+    /**
+     * Offsets the lower bound of a channel range and clips the result to a valid channel value.
+     *
+     * @param min The lower bound of the range.
+     * @param offset The offset from the lower bound.
+     * @return min + offset, clipped to [0,255].
+     */
+    private static int channelInRange(int min, int offset) {
+        int channel = min + offset;
         return Math.min(255, Math.max(channel, 0));
     }
 }
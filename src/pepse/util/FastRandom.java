@@ -0,0 +1,81 @@
+package pepse.util;
+
+/**
+ * A small, fast pseudo-random generator based on SplitMix64.
+ * Unlike {@link java.util.Random} it is not thread-safe and keeps a single long of state, which
+ * makes it cheap to share between many game objects on the game thread, and to reseed.
+ * Combined with {@link #hash}, a generator can be reseeded for any coordinate of the world, so
+ * content generated from it is reproducible from the world seed alone.
+ */
+public final class FastRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private long state;
+
+    /**
+     * Constructs a generator.
+     * @param seed The seed of the generated sequence.
+     */
+    public FastRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Restarts the generator from a seed.
+     * @param seed The seed of the generated sequence.
+     */
+    public void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * @return The next pseudo-random long.
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Returns the next pseudo-random int in [0, bound).
+     * @param bound The upper bound (exclusive), must be positive.
+     * @return The next pseudo-random int in range.
+     */
+    public int nextInt(int bound) {
+        return (int) ((nextLong() >>> 33) * bound >>> 31);
+    }
+
+    /**
+     * @return The next pseudo-random float in [0, 1).
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @return The next pseudo-random double in [0, 1).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Derives an independent seed from a seed and a key, such as a world seed and a column index.
+     * @param seed The seed to derive from.
+     * @param key The key distinguishing the derived seed.
+     * @return The derived seed.
+     */
+    public static long hash(long seed, long key) {
+        return mix(mix(seed) + key * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles the bits of a long, the output function of SplitMix64.
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
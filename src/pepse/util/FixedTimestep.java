@@ -0,0 +1,71 @@
+package pepse.util;
+
+/**
+ * Turns the variable time between rendered frames into a whole number of fixed simulation
+ * steps, so the game logic behaves the same whatever the frame rate is. The time left over after
+ * the last whole step is carried to the next frame.
+ * The step should be well below the frame time: when both are about equal, the frame times'
+ * jitter around the step makes frames alternate between simulating no step and two steps.
+ * When a frame took so long that more than the maximal number of steps became due, the extra
+ * steps are dropped and the game slows down for that frame, instead of trying to catch up and
+ * falling further behind.
+ */
+public class FixedTimestep {
+    /** The default simulation step, in seconds: 120 steps per second, two per frame at 60 FPS. */
+    public static final float DEFAULT_STEP = 1f / 120;
+    private final float step;
+    private final int maxStepsPerFrame;
+    // time elapsed and not simulated yet, always less than one step after advance returns
+    private double accumulator;
+    private long totalSteps;
+    private long droppedSteps;
+
+    /**
+     * Constructs a timestep.
+     * @param step The duration of one simulation step, in seconds.
+     * @param maxStepsPerFrame The maximal number of steps simulated in one frame.
+     */
+    public FixedTimestep(float step, int maxStepsPerFrame) {
+        this.step = step;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Adds the time of a frame, and calculates how many steps to simulate in it.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     * @return The number of steps to simulate in this frame, between 0 and the maximal number
+     * of steps per frame.
+     */
+    public int advance(float deltaTime) {
+        accumulator += Math.max(0, deltaTime);
+        int steps = (int) (accumulator / step);
+        accumulator -= steps * (double) step;
+        if (steps > maxStepsPerFrame) {
+            droppedSteps += steps - maxStepsPerFrame;
+            steps = maxStepsPerFrame;
+        }
+        totalSteps += steps;
+        return steps;
+    }
+
+    /**
+     * @return The duration of one simulation step, in seconds.
+     */
+    public float getStep() {
+        return step;
+    }
+
+    /**
+     * @return The number of steps simulated so far.
+     */
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * @return The number of steps dropped so far, because frames took too long.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
@@ -0,0 +1,283 @@
+package pepse.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records where the time of every frame goes, together with the number of live objects and the
+ * bytes allocated by the game thread, as a time series of the most recent frames.
+ * Each frame is bracketed by {@link #beginFrame} and {@link #endFrame}; in between, subsystems
+ * add the time they spent to their {@link Section} and set the {@link Counter}s. Frames are kept
+ * in a ring buffer of primitive longs, so recording allocates nothing, and the series can be
+ * exported as CSV or JSON to compare runs. Not thread-safe: used from the game thread only.
+ */
+public class FrameProfiler {
+    /** The parts of a frame whose time is recorded. */
+    public enum Section {
+        /** The whole frame, from the start of one update to the start of the next. */
+        FRAME,
+        /** The engine's update of the game objects, including collision handling. */
+        ENGINE_UPDATE,
+        /** The time between two updates: the engine's rendering, and waiting for the next frame. */
+        RENDER_AND_IDLE,
+        /** The world's own logic: scheduled tasks, leaf animation and chunk streaming. */
+        WORLD_UPDATE,
+        /** Building the tile maps and surface colliders of generated chunks. */
+        TERRAIN_BUILD,
+        /** Building the flora of generated chunks. */
+        FLORA_BUILD,
+        /** Notifying the avatar's jump observers. */
+        JUMP_NOTIFY
+    }
+
+    /** The values sampled once per frame. */
+    public enum Counter {
+        /** Tile maps drawing the ground in the game, one per chunk. */
+        TILE_MAPS,
+        /** Invisible ground surface colliders in the game, one per run of equal-height columns. */
+        SURFACE_COLLIDERS,
+        /** Tree trunks in the game. */
+        TRUNKS,
+        /** Leaves in the game. */
+        LEAVES,
+        /** Fruits in the game. */
+        FRUITS,
+        /** Static objects in colliding layers. */
+        ACTIVE_COLLIDERS,
+        /** Generated chunks, active or parked. */
+        LIVE_CHUNKS,
+        /** Bytes allocated by the game thread during the frame. */
+        ALLOCATED_BYTES
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final int COLUMNS = SECTIONS.length + COUNTERS.length;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int capacity;
+    // frame after frame, the nanos of every section followed by every counter
+    private final long[] samples;
+    private final long[] current = new long[COLUMNS];
+    private long recordedFrames;
+    private long frameStartNanos;
+    private long lastFrameEndNanos = -1;
+    private long frameStartBytes;
+
+    /**
+     * Constructs an empty profiler.
+     * @param capacity The number of most recent frames kept.
+     */
+    public FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        this.samples = new long[capacity * COLUMNS];
+    }
+
+    /**
+     * Starts recording a frame. The time since the previous frame ended is recorded as
+     * {@link Section#RENDER_AND_IDLE}.
+     */
+    public void beginFrame() {
+        long now = System.nanoTime();
+        if (recordedFrames > 0) {
+            // the previous frame lasted until now
+            samples[previousRow() + Section.FRAME.ordinal()] = now - frameStartNanos;
+            samples[previousRow() + Section.RENDER_AND_IDLE.ordinal()] = now - lastFrameEndNanos;
+        }
+        Arrays.fill(current, 0);
+        frameStartNanos = now;
+        frameStartBytes = allocatedBytes();
+    }
+
+    /**
+     * Adds time to a section of the current frame.
+     * @param section The section the time was spent in.
+     * @param nanos The time spent, in nanoseconds.
+     */
+    public void add(Section section, long nanos) {
+        current[section.ordinal()] += nanos;
+    }
+
+    /**
+     * Sets a counter of the current frame.
+     * @param counter The counter.
+     * @param value Its value.
+     */
+    public void set(Counter counter, long value) {
+        current[SECTIONS.length + counter.ordinal()] = value;
+    }
+
+    /**
+     * Stops recording the current frame and stores it. Its total time and the time until the
+     * next frame are completed by the next call to {@link #beginFrame}.
+     */
+    public void endFrame() {
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        set(Counter.ALLOCATED_BYTES, bytes < 0 ? -1 : bytes - frameStartBytes);
+        current[Section.FRAME.ordinal()] = now - frameStartNanos;
+        System.arraycopy(current, 0, samples, rowOf(recordedFrames), COLUMNS);
+        recordedFrames++;
+        lastFrameEndNanos = now;
+    }
+
+    /**
+     * @return The number of frames recorded since the profiler was created.
+     */
+    public long getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    /**
+     * @return The number of frames currently kept.
+     */
+    public int getKeptFrames() {
+        return (int) Math.min(recordedFrames, capacity);
+    }
+
+    /**
+     * Averages the time of a section over the most recent frames.
+     * @param section The section.
+     * @param frames The number of most recent frames to average.
+     * @return The average time in milliseconds, or 0 if no frame was recorded.
+     */
+    public double averageMillis(Section section, int frames) {
+        return average(section.ordinal(), frames) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Averages a counter over the most recent frames.
+     * @param counter The counter.
+     * @param frames The number of most recent frames to average.
+     * @return The average value, or 0 if no frame was recorded.
+     */
+    public double average(Counter counter, int frames) {
+        return average(SECTIONS.length + counter.ordinal(), frames);
+    }
+
+    /**
+     * Writes the kept frames as CSV: one header line, then one line per frame with the time of
+     * every section in milliseconds and the value of every counter.
+     * @param writer The destination of the CSV text.
+     * @throws IOException If writing fails.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder("frame");
+        for (Section section : SECTIONS) {
+            line.append(',').append(section.name().toLowerCase(Locale.ROOT)).append("_ms");
+        }
+        for (Counter counter : COUNTERS) {
+            line.append(',').append(counter.name().toLowerCase(Locale.ROOT));
+        }
+        writer.write(line.append('\n').toString());
+        for (long frame = firstKeptFrame(); frame < recordedFrames; frame++) {
+            line.setLength(0);
+            line.append(frame);
+            int row = rowOf(frame);
+            for (int column = 0; column < COLUMNS; column++) {
+                line.append(',').append(format(column, samples[row + column]));
+            }
+            writer.write(line.append('\n').toString());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the kept frames as JSON: an object holding the column names, and an array of
+     * frames, each an array of values in the column order, times in milliseconds.
+     * @param writer The destination of the JSON text.
+     * @throws IOException If writing fails.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        StringBuilder text = new StringBuilder("{\"columns\":[\"frame\"");
+        for (Section section : SECTIONS) {
+            text.append(",\"").append(section.name().toLowerCase(Locale.ROOT)).append("_ms\"");
+        }
+        for (Counter counter : COUNTERS) {
+            text.append(",\"").append(counter.name().toLowerCase(Locale.ROOT)).append('"');
+        }
+        text.append("],\"frames\":[");
+        writer.write(text.toString());
+        for (long frame = firstKeptFrame(); frame < recordedFrames; frame++) {
+            text.setLength(0);
+            text.append(frame == firstKeptFrame() ? "\n[" : ",\n[").append(frame);
+            int row = rowOf(frame);
+            for (int column = 0; column < COLUMNS; column++) {
+                text.append(',').append(format(column, samples[row + column]));
+            }
+            writer.write(text.append(']').toString());
+        }
+        writer.write("]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Formats a recorded value, converting times to milliseconds.
+     * @param column The column of the value.
+     * @param value The recorded value.
+     * @return The formatted value.
+     */
+    private static String format(int column, long value) {
+        if (column < SECTIONS.length) {
+            return String.format(Locale.ROOT, "%.4f", value / NANOS_PER_MILLI);
+        }
+        return Long.toString(value);
+    }
+
+    /**
+     * Averages a column over the most recent frames.
+     * @param column The column.
+     * @param frames The number of most recent frames to average.
+     * @return The average raw value, or 0 if no frame was recorded.
+     */
+    private double average(int column, int frames) {
+        int count = Math.min(frames, getKeptFrames());
+        if (count == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long frame = recordedFrames - count; frame < recordedFrames; frame++) {
+            sum += samples[rowOf(frame) + column];
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * @return The first frame still kept in the ring buffer.
+     */
+    private long firstKeptFrame() {
+        return recordedFrames - getKeptFrames();
+    }
+
+    /**
+     * @param frame A recorded frame.
+     * @return The offset of the frame's row in the ring buffer.
+     */
+    private int rowOf(long frame) {
+        return (int) (frame % capacity) * COLUMNS;
+    }
+
+    /**
+     * @return The offset of the last stored frame's row in the ring buffer.
+     */
+    private int previousRow() {
+        return rowOf(recordedFrames - 1);
+    }
+
+    /**
+     * Measures the bytes allocated by the calling thread so far, where the JVM supports it.
+     * @return The allocated bytes, or -1 if they cannot be measured.
+     */
+    public static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
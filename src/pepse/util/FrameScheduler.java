@@ -0,0 +1,102 @@
+package pepse.util;
+
+import java.util.Arrays;
+
+/**
+ * Runs delayed tasks on the game thread, driven by the game's frame updates instead of timer
+ * threads. Pending tasks are kept in a binary min-heap ordered by due time, stored in parallel
+ * arrays that only grow when more tasks are pending than ever before, so scheduling and running
+ * tasks allocates nothing in the steady state.
+ */
+public class FrameScheduler {
+    private static final int INITIAL_CAPACITY = 64;
+    private double[] dueTimes = new double[INITIAL_CAPACITY];
+    private Runnable[] tasks = new Runnable[INITIAL_CAPACITY];
+    private int size;
+    private double time;
+
+    /**
+     * Schedules a task to run once, after a delay.
+     * @param delay The delay in seconds, measured in game time.
+     * @param task The task to run. Reusing the same instance avoids allocating on every call.
+     */
+    public void schedule(float delay, Runnable task) {
+        if (size == tasks.length) {
+            dueTimes = Arrays.copyOf(dueTimes, size * 2);
+            tasks = Arrays.copyOf(tasks, size * 2);
+        }
+        // sift the new task up from the bottom of the heap
+        double dueTime = time + delay;
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (dueTimes[parent] <= dueTime) {
+                break;
+            }
+            dueTimes[index] = dueTimes[parent];
+            tasks[index] = tasks[parent];
+            index = parent;
+        }
+        dueTimes[index] = dueTime;
+        tasks[index] = task;
+    }
+
+    /**
+     * Advances the game time and runs every task that became due, earliest first.
+     * Should be called once per frame, from the game thread.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     */
+    public void advance(float deltaTime) {
+        time += deltaTime;
+        while (size > 0 && dueTimes[0] <= time) {
+            Runnable task = tasks[0];
+            removeFirst();
+            task.run();
+        }
+    }
+
+    /**
+     * @return The game time in seconds, advanced by every call to {@link #advance}.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return The number of tasks waiting to run.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes the earliest task from the heap.
+     */
+    private void removeFirst() {
+        size--;
+        double dueTime = dueTimes[size];
+        Runnable task = tasks[size];
+        tasks[size] = null;
+        // sift the last task down from the top of the heap
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && dueTimes[child + 1] < dueTimes[child]) {
+                child++;
+            }
+            if (dueTime <= dueTimes[child]) {
+                break;
+            }
+            dueTimes[index] = dueTimes[child];
+            tasks[index] = tasks[child];
+            index = child;
+        }
+        if (size > 0) {
+            dueTimes[index] = dueTime;
+            tasks[index] = task;
+        }
+    }
+}
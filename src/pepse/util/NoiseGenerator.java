@@ -1,5 +1,9 @@
 package pepse.util;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * This class is responsible for generating pseudo-random noise, useful for terrain generation
  * and other randomized visual effects within a game environment. It utilizes Perlin noise or
@@ -8,12 +12,25 @@ package pepse.util;
  * features or other elements that require randomness.
  * The generated noise is deterministic and repeatable for the same seed and startPoint values,
  * ensuring consistent game worlds across different sessions.
-
+ * Generators are immutable once constructed, so a single generator may be sampled from several
+ * threads at once.
  */
 public class NoiseGenerator {
-    private final double seed;
-    private int[] p;
+    // number of lattice points before the permutation repeats
+    private static final int LATTICE_SIZE = 256;
+    // number of distinct seeds whose gradient tables are kept for reuse
+    private static final int MAX_CACHED_SEEDS = 64;
+    private static final Map<Long, double[]> gradientsBySeed =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                    return size() > MAX_CACHED_SEEDS;
+                }
+            };
     private final double startPoint;
+    // gradient of each lattice point along x, with one extra entry so that i + 1 never wraps.
+    // shared between all generators of the same seed, and never modified.
+    private final double[] gradients;
 
     /**
      * The constructor of the NoiseGenerator class.
@@ -28,47 +45,50 @@ public class NoiseGenerator {
      *
      */
     public NoiseGenerator(double seed, int startPoint) {
-        this.seed = seed;
         this.startPoint = startPoint;
-        init();
+        this.gradients = gradientsFor(seed);
     }
 
+    /**
+     * Returns the gradient table of a seed, building it on first use. Tables of recently used
+     * seeds are cached, so generators sharing a seed don't pay for the table setup again.
+     * @param seed The seed of the table.
+     * @return The gradient table of the seed.
+     */
+    private static synchronized double[] gradientsFor(double seed) {
+        return gradientsBySeed.computeIfAbsent(Double.doubleToLongBits(seed),
+                NoiseGenerator::createGradients);
+    }
 
     /**
-     * Initializes the permutation array required for noise generation.
-     * This method populates the array with a predefined set of values and duplicates them
-     * to ensure seamless noise pattern generation over a wide range of inputs.
+     * Creates the gradient table of a seed.
+     * The lattice points are shuffled into a permutation with a {@link FastRandom} seeded by
+     * the seed's bits, so every seed gets its own landscape rather than a shifted copy of the
+     * same one. Each lattice point's gradient along x (+1, -1 or 0, as in 3D Perlin noise
+     * sampled on its y = 0, z = 0 row) is then stored, so sampling needs no hashing at all.
+     * @param seedBits The bits of the seed.
+     * @return The gradient table.
      */
-    private void init() {
-        // Initialize the permutation array.
-        this.p = new int[512];
-        int[] permutation = new int[]{151, 160, 137, 91, 90, 15, 131, 13, 201,
-                95, 96, 53, 194, 233, 7, 225, 140, 36, 103, 30, 69, 142, 8, 99,
-                37, 240, 21, 10, 23, 190, 6, 148, 247, 120, 234, 75, 0, 26,
-                197, 62, 94, 252, 219, 203, 117, 35, 11, 32, 57, 177, 33, 88,
-                237, 149, 56, 87, 174, 20, 125, 136, 171, 168, 68, 175, 74,
-                165, 71, 134, 139, 48, 27, 166, 77, 146, 158, 231, 83, 111,
-                229, 122, 60, 211, 133, 230, 220, 105, 92, 41, 55, 46, 245, 40,
-                244, 102, 143, 54, 65, 25, 63, 161, 1, 216, 80, 73, 209, 76,
-                132, 187, 208, 89, 18, 169, 200, 196, 135, 130, 116, 188, 159,
-                86, 164, 100, 109, 198, 173, 186, 3, 64, 52, 217, 226, 250,
-                124, 123, 5, 202, 38, 147, 118, 126, 255, 82, 85, 212, 207,
-                206, 59, 227, 47, 16, 58, 17, 182, 189, 28, 42, 223, 183, 170,
-                213, 119, 248, 152, 2, 44, 154, 163, 70, 221, 153, 101, 155,
-                167, 43, 172, 9, 129, 22, 39, 253, 19, 98, 108, 110, 79, 113,
-                224, 232, 178, 185, 112, 104, 218, 246, 97, 228, 251, 34, 242,
-                193, 238, 210, 144, 12, 191, 179, 162, 241, 81, 51, 145, 235,
-                249, 14, 239, 107, 49, 192, 214, 31, 181, 199, 106, 157, 184,
-                84, 204, 176, 115, 121, 50, 45, 127, 4, 150, 254, 138, 236,
-                205, 93, 222, 114, 67, 29, 24, 72, 243, 141, 128, 195, 78, 66,
-                215, 61, 156, 180};
-        long default_size = 35;
-
-        // Populate it
-        for (int i = 0; i < 256; i++) {
-            p[256 + i] = p[i] = permutation[i];
+    private static double[] createGradients(long seedBits) {
+        // Fisher-Yates shuffle of the lattice points
+        int[] permutation = new int[LATTICE_SIZE];
+        for (int i = 0; i < LATTICE_SIZE; i++) {
+            permutation[i] = i;
+        }
+        FastRandom random = new FastRandom(seedBits);
+        for (int i = LATTICE_SIZE - 1; i > 0; i--) {
+            int j = (int) ((random.nextLong() >>> 1) % (i + 1));
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
         }
 
+        double[] gradients = new double[LATTICE_SIZE + 1];
+        for (int i = 0; i < LATTICE_SIZE; i++) {
+            gradients[i] = grad(permutation[i]);
+        }
+        gradients[LATTICE_SIZE] = gradients[0];
+        return gradients;
     }
 
     /**
@@ -92,57 +112,75 @@ public class NoiseGenerator {
         double currentPoint = startPoint;
 
         while (currentPoint >= 1) {
-            value += smoothNoise((x / currentPoint), 0, 0) * currentPoint;
+            value += smoothNoise(x / currentPoint) * currentPoint;
             currentPoint /= 2.0;
         }
 
         return value * factor / startPoint;
     }
 
+    /**
+     * Fills an array with the noise of evenly spaced x-coordinates, as if {@link #noise} was called
+     * for each of them, with exactly the same results.
+     * Consecutive samples mostly fall in the same lattice cell of every octave, so each octave
+     * keeps the cell of the previous sample and its two gradients, and only looks them up again
+     * once a sample crosses into another cell.
+     * @param out The array receiving the noise values.
+     * @param offset The index in out of the first value to write.
+     * @param count The number of values to write.
+     * @param startX The x-coordinate of the first value.
+     * @param stepX The distance between two consecutive x-coordinates.
+     * @param factor describes how large the noise should be, as in {@link #noise}.
+     */
+    public void noise(float[] out, int offset, int count, double startX, double stepX, double factor) {
+        int octaves = 0;
+        for (double currentPoint = startPoint; currentPoint >= 1; currentPoint /= 2.0) {
+            octaves++;
+        }
+        // the cell each octave's last sample fell in, and the gradients at both of its ends
+        double[] cellStarts = new double[octaves];
+        double[] startGradients = new double[octaves];
+        double[] endGradients = new double[octaves];
+        Arrays.fill(cellStarts, Double.NaN);
+
+        for (int i = 0; i < count; i++) {
+            double x = startX + i * stepX;
+            double value = 0.0;
+            double currentPoint = startPoint;
+            for (int octave = 0; octave < octaves; octave++) {
+                double u = x / currentPoint;
+                double floorU = Math.floor(u);
+                if (floorU != cellStarts[octave]) {
+                    int X = (int) floorU & (LATTICE_SIZE - 1);
+                    cellStarts[octave] = floorU;
+                    startGradients[octave] = gradients[X];
+                    endGradients[octave] = gradients[X + 1];
+                }
+                u -= floorU;
+                value += lerp(fade(u), startGradients[octave] * u,
+                        endGradients[octave] * (u - 1)) * currentPoint;
+                currentPoint /= 2.0;
+            }
+            out[offset + i] = (float) (value * factor / startPoint);
+        }
+    }
+
 
     /**
-     * Generates a smoothed noise value based on x, y, and z coordinates.
+     * Generates a smoothed 1D gradient noise value for an x-coordinate.
      * This helper method is used internally to calculate noise values with a smoothing function
      * to ensure continuity and natural transitions between noise values.
      *
      * @param x The x-coordinate.
-     * @param y The y-coordinate (unused in current implementation, included for potential future use).
-     * @param z The z-coordinate (unused in current implementation, included for potential future use).
-     * @return A smoothed noise value based on the provided coordinates.
+     * @return A smoothed noise value based on the provided coordinate.
      */
-    private double smoothNoise(double x, double y, double z) {
-        // Offset each coordinate by the seed value
-        x += this.seed;
-        y += this.seed;
-        x += this.seed;
-
-        int X = (int) Math.floor(x) & 255; // FIND UNIT CUBE THAT
-        int Y = (int) Math.floor(y) & 255; // CONTAINS POINT.
-        int Z = (int) Math.floor(z) & 255;
-
-        x -= Math.floor(x); // FIND RELATIVE X,Y,Z
-        y -= Math.floor(y); // OF POINT IN CUBE.
-        z -= Math.floor(z);
-
-        double u = fade(x); // COMPUTE FADE CURVES
-        double v = fade(y); // FOR EACH OF X,Y,Z.
-        double w = fade(z);
-
-        int A = p[X] + Y;
-        int AA = p[A] + Z;
-        int AB = p[A + 1] + Z; // HASH COORDINATES OF
-        int B = p[X + 1] + Y;
-        int BA = p[B] + Z;
-        int BB = p[B + 1] + Z; // THE 8 CUBE CORNERS,
-
-        return lerp(w, lerp(v, lerp(u, grad(p[AA], x, y, z),    // AND ADD
-                                grad(p[BA], x - 1, y, z)), // BLENDED
-                        lerp(u, grad(p[AB], x, y - 1, z),    // RESULTS
-                                grad(p[BB], x - 1, y - 1, z))),// FROM 8
-                lerp(v, lerp(u, grad(p[AA + 1], x, y, z - 1),    // CORNERS
-                                grad(p[BA + 1], x - 1, y, z - 1)), // OF CUBE
-                        lerp(u, grad(p[AB + 1], x, y - 1, z - 1),
-                                grad(p[BB + 1], x - 1, y - 1, z - 1))));
+    private double smoothNoise(double x) {
+        double floorX = Math.floor(x);
+        int X = (int) floorX & (LATTICE_SIZE - 1); // FIND UNIT SEGMENT THAT CONTAINS POINT
+        x -= floorX; // FIND RELATIVE X OF POINT IN SEGMENT
+
+        // BLEND THE GRADIENTS OF BOTH ENDS OF THE SEGMENT
+        return lerp(fade(x), gradients[X] * x, gradients[X + 1] * (x - 1));
     }
 
     /**
@@ -168,18 +206,21 @@ public class NoiseGenerator {
     }
 
     /**
-     * Calculates gradient vector and dot product for 3D noise.
+     * Calculates the x component of the 3D Perlin gradient selected by a hash, which is all
+     * that remains of the gradient's dot product when y and z are both zero.
+     * Shared by all seeds, so the distribution of slopes stays the same as in Perlin noise.
      *
      * @param hash A unique identifier for the gradient direction.
-     * @param x X-coordinate in space.
-     * @param y Y-coordinate in space.
-     * @param z Z-coordinate in space.
-     * @return The dot product of the gradient vector and the vector (x, y, z).
+     * @return The factor (1, -1 or 0) the x offset is multiplied by.
      */
-    private double grad(int hash, double x, double y, double z) {
+    private static double grad(int hash) {
         int h = hash & 15; // CONVERT LO 4 BITS OF HASH CODE
-        double u = h < 8 ? x : y, // INTO 12 GRADIENT DIRECTIONS.
-                v = h < 4 ? y : h == 12 || h == 14 ? x : z;
-        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+        if (h < 8) { // INTO 12 GRADIENT DIRECTIONS.
+            return (h & 1) == 0 ? 1 : -1;
+        }
+        if (h == 12 || h == 14) {
+            return (h & 2) == 0 ? 1 : -1;
+        }
+        return 0;
     }
 }
@@ -0,0 +1,117 @@
+package pepse.util;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded pool of reusable objects. Released objects are kept, up to the pool's capacity,
+ * and handed back by {@link #acquire}, which the caller then resets to its new state. When the
+ * pool is empty, the caller creates a new object instead.
+ * The pool counts hits and misses, and the largest number of idle objects it ever held, to help
+ * sizing it. Not thread-safe: objects are acquired and released on the game thread.
+ * @param <T> The type of the pooled objects.
+ */
+public class ObjectPool<T> {
+    private final int capacity;
+    private final ArrayDeque<T> idle;
+    private int highWaterMark;
+    private long hits;
+    private long misses;
+    private long dropped;
+
+    /**
+     * Constructs an empty pool.
+     * @param capacity The maximal number of idle objects kept, further released objects are
+     *                 left to the garbage collector.
+     */
+    public ObjectPool(int capacity) {
+        this.capacity = capacity;
+        this.idle = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * Takes an idle object out of the pool.
+     * @return An idle object, which the caller must reset before use, or null if the pool is empty.
+     */
+    public T acquire() {
+        T object = idle.pollLast();
+        if (object == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return object;
+    }
+
+    /**
+     * Returns an object that is no longer in use to the pool. The object must not be referenced
+     * by the game anymore.
+     * @param object The object to return.
+     */
+    public void release(T object) {
+        if (idle.size() >= capacity) {
+            dropped++;
+            return;
+        }
+        idle.addLast(object);
+        highWaterMark = Math.max(highWaterMark, idle.size());
+    }
+
+    /**
+     * @return The number of idle objects in the pool.
+     */
+    public int size() {
+        return idle.size();
+    }
+
+    /**
+     * @return The maximal number of idle objects kept.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The largest number of idle objects the pool ever held.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return The number of acquisitions served by an idle object.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of acquisitions that found the pool empty.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The fraction of acquisitions served by an idle object, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long acquisitions = hits + misses;
+        return acquisitions == 0 ? 0 : (double) hits / acquisitions;
+    }
+
+    /**
+     * @return The number of released objects dropped because the pool was full.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return A one-line summary of the pool's statistics.
+     */
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d highWater=%d hitRate=%.2f dropped=%d",
+                idle.size(), capacity, highWaterMark, getHitRate(), dropped);
+    }
+}
@@ -0,0 +1,110 @@
+package pepse.util;
+
+import danogl.gui.rendering.RectangleRenderable;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A shared palette of rectangle renderables approximating a base color.
+ * Instead of allocating a new color and renderable for every tile, callers pick one of a fixed
+ * number of pre-jittered variants by hashing the tile's position, so the same coordinate always
+ * gets the same shade, on every run, and all tiles of a color share a handful of renderables.
+ * The variants can also be picked by index, so tiles drawn together by one renderable can store
+ * a byte per tile instead of a reference.
+ */
+public final class RenderablePalette {
+    private static final int DEFAULT_VARIANT_COUNT = 16;
+    private static final Map<Long, RenderablePalette> palettes = new HashMap<>();
+    private final RectangleRenderable[] variants;
+    private final Color[] colors;
+
+    /**
+     * Constructs a palette of pre-jittered variants of a color.
+     * @param baseColor The color the variants approximate.
+     * @param colorDelta The maximal difference (per channel) between a variant and the base color.
+     * @param variantCount The number of variants in the palette.
+     */
+    private RenderablePalette(Color baseColor, int colorDelta, int variantCount) {
+        // seeded by the palette itself, so the variants are the same on every run
+        FastRandom random = new FastRandom(FastRandom.hash(baseColor.getRGB(), colorDelta));
+        variants = new RectangleRenderable[variantCount];
+        colors = new Color[variantCount];
+        for (int i = 0; i < variantCount; i++) {
+            colors[i] = ColorSupplier.approximateColor(baseColor, colorDelta, random);
+            variants[i] = new RectangleRenderable(colors[i]);
+        }
+    }
+
+    /**
+     * Returns the shared palette approximating baseColor, with the default delta.
+     * @param baseColor The color the palette approximates.
+     * @return The palette of baseColor, created on first use.
+     */
+    public static RenderablePalette of(Color baseColor) {
+        return of(baseColor, ColorSupplier.DEFAULT_COLOR_DELTA);
+    }
+
+    /**
+     * Returns the shared palette approximating baseColor, with a difference of at most colorDelta.
+     * A delta of 0 yields a palette holding a single renderable of exactly baseColor.
+     * @param baseColor The color the palette approximates.
+     * @param colorDelta The maximal difference (per channel) between a variant and the base color.
+     * @return The palette of baseColor and colorDelta, created on first use.
+     */
+    public static synchronized RenderablePalette of(Color baseColor, int colorDelta) {
+        long key = ((long) baseColor.getRGB() << 32) | (colorDelta & 0xFFFFFFFFL);
+        return palettes.computeIfAbsent(key, k ->
+                new RenderablePalette(baseColor, colorDelta, colorDelta == 0 ? 1 : DEFAULT_VARIANT_COUNT));
+    }
+
+    /**
+     * Returns the variant assigned to a position. The same position always yields the same variant.
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The renderable of the tile, shared with every other tile mapped to the same variant.
+     */
+    public RectangleRenderable at(int x, int y) {
+        return variants[indexAt(x, y)];
+    }
+
+    /**
+     * Returns the index of the variant assigned to a position, as picked by {@link #at(int, int)}.
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The index of the tile's variant, below {@link #size()}.
+     */
+    public int indexAt(int x, int y) {
+        int hash = x * 0x9E3779B1 ^ y * 0x85EBCA77;
+        hash ^= hash >>> 15;
+        hash *= 0x2C1B3C6D;
+        hash ^= hash >>> 12;
+        return (hash & Integer.MAX_VALUE) % variants.length;
+    }
+
+    /**
+     * @param index The index of a variant.
+     * @return The color of the variant.
+     */
+    public Color colorAt(int index) {
+        return colors[index];
+    }
+
+    /**
+     * @return The number of variants in the palette.
+     */
+    public int size() {
+        return variants.length;
+    }
+
+    /**
+     * Returns the variant assigned to a position, rounding it down to whole pixels.
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The renderable of the tile.
+     */
+    public RectangleRenderable at(float x, float y) {
+        return at((int) Math.floor(x), (int) Math.floor(y));
+    }
+}
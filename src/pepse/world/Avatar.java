@@ -7,8 +7,6 @@ import danogl.gui.rendering.AnimationRenderable;
 import danogl.util.Vector2;
 
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Represents the player's avatar in the game, handling animations, movements, and energy levels.
@@ -20,13 +18,20 @@ public class Avatar extends GameObject {
 
     /** Vector of Avatar size. passing it to gameManager */
     public static Vector2 AVATAR_SIZE = new Vector2(50, 50);
-    private final UserInputListener inputListener;
+    private final AvatarInput input;
     private static final double MAX_ENERGY = 100;
+    // energy regained per second while standing, and spent per second while running
+    private static final double IDLE_ENERGY_PER_SECOND = 60;
+    private static final double RUN_ENERGY_PER_SECOND = 30;
+    private static final double JUMP_ENERGY = 10;
     private double curEnergy = MAX_ENERGY;
     private AnimationRenderable idleAnimation;
     private AnimationRenderable runAnimation;
     private AnimationRenderable jumpAnimation;
-    private final List<JumpAvatarObserver> observersList;
+    private static final int OBSERVER_BUCKET_WIDTH = Block.BLOCK_SIZE * 16;
+    private static final float DEFAULT_JUMP_NOTIFICATION_RADIUS = 1000;
+    private final JumpObserverIndex observers;
+    private float jumpNotificationRadius = DEFAULT_JUMP_NOTIFICATION_RADIUS;
 
 
     /**
@@ -36,12 +41,41 @@ public class Avatar extends GameObject {
      * @param imageReader Utility to read animation frames from images.
      */
     public Avatar(Vector2 pos, UserInputListener inputListener, ImageReader imageReader) {
-        super(pos, AVATAR_SIZE, imageReader.readImage("assets/idle_0.png", true));
+        this(pos, inputListener, imageReader, false);
+    }
+
+    /**
+     * Constructor initializing the avatar, choosing how it holds its jump observers.
+     * @param pos The initial position of the avatar.
+     * @param inputListener A listener for user inputs to control the avatar.
+     * @param imageReader Utility to read animation frames from images.
+     * @param weakObservers If true, jump observers are held through weak references, so objects
+     *                      dropped by the game are never kept alive by the avatar.
+     */
+    public Avatar(Vector2 pos, UserInputListener inputListener, ImageReader imageReader,
+                  boolean weakObservers) {
+        this(pos, AvatarInput.of(inputListener), imageReader, weakObservers);
+    }
+
+    /**
+     * Constructor initializing the avatar with any source of input, such as a scripted one.
+     * @param pos The initial position of the avatar.
+     * @param input The source of the keys controlling the avatar.
+     * @param imageReader Utility to read animation frames from images, or null to run without
+     *                    any graphics (e.g. in a headless simulation).
+     * @param weakObservers If true, jump observers are held through weak references, so objects
+     *                      dropped by the game are never kept alive by the avatar.
+     */
+    public Avatar(Vector2 pos, AvatarInput input, ImageReader imageReader, boolean weakObservers) {
+        super(pos, AVATAR_SIZE,
+                imageReader == null ? null : imageReader.readImage("assets/idle_0.png", true));
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         transform().setAccelerationY(GRAVITY);
-        this.inputListener = inputListener;
-        setupAnimations(imageReader);
-        observersList = new ArrayList<>();
+        this.input = input;
+        if (imageReader != null) {
+            setupAnimations(imageReader);
+        }
+        observers = new JumpObserverIndex(OBSERVER_BUCKET_WIDTH, weakObservers);
     }
 
 
@@ -83,40 +117,43 @@ public class Avatar extends GameObject {
     }
 
     /**
-     * Updates the avatar's state each frame. Handles movement based on user input and applies the resulting
-     * horizontal velocity. This method also triggers animation changes and energy consumption
-     * based on actions.
-     * @param deltaTime The time elapsed since the last frame update, used for frame-independent movement.
+     * Updates the avatar's state each simulation step. Handles movement based on user input and
+     * applies the resulting horizontal velocity. This method also triggers animation changes and
+     * energy consumption based on actions. Energy changes at a rate per second, scaled by the
+     * step, so the avatar behaves the same whatever the step is.
+     * @param deltaTime The duration of the simulation step, in seconds.
      */
     @Override
     public void update(float deltaTime) {
         super.update(deltaTime);
         // Handle avatar movement and energy consumption
-        float xVel = handleMovement();
+        float xVel = handleMovement(deltaTime);
         transform().setVelocityX(xVel);
     }
 
     /**
      * Handles keyboard input to control the avatar's movement, jumping, and energy consumption.
+     * @param deltaTime The duration of the simulation step, in seconds.
      * @return The calculated horizontal velocity based on input.
      */
-    private float handleMovement() {
+    private float handleMovement(float deltaTime) {
         float xVel = 0;
-        if(curEnergy < 0.5){
+        double runEnergy = RUN_ENERGY_PER_SECOND * deltaTime;
+        if(curEnergy < runEnergy){
             transform().setVelocityX(0);
         }
         // if avatar is standing and not moving
-        if (inputListener.pressedKeys().isEmpty()) {
-            handleIdle();
+        if (!input.isAnyKeyPressed()) {
+            handleIdle(deltaTime);
             transform().setVelocityX(xVel);
-        } else if (inputListener.isKeyPressed(KeyEvent.VK_LEFT) && this.curEnergy >= 0.5) { // moved left
+        } else if (input.isKeyPressed(KeyEvent.VK_LEFT) && this.curEnergy >= runEnergy) { // moved left
             xVel -= VELOCITY_X;
-            moveLeft(xVel);
-        } else if (inputListener.isKeyPressed(KeyEvent.VK_RIGHT) && this.curEnergy >= 0.5) { // moved right
+            moveLeft(xVel, runEnergy);
+        } else if (input.isKeyPressed(KeyEvent.VK_RIGHT) && this.curEnergy >= runEnergy) { // moved right
             xVel += VELOCITY_X;
-            moveRight(xVel);
-        } else if (inputListener.isKeyPressed(KeyEvent.VK_SPACE) && getVelocity().y() == 0
-                && this.curEnergy >= 10) { //  is jumping
+            moveRight(xVel, runEnergy);
+        } else if (input.isKeyPressed(KeyEvent.VK_SPACE) && getVelocity().y() == 0
+                && this.curEnergy >= JUMP_ENERGY) { //  is jumping
             notifyObservers();
             jump();
         }
@@ -125,36 +162,49 @@ public class Avatar extends GameObject {
 
     /**
      * Handles the avatar's idle state, replenishing energy over time and setting the idle animation.
+     * @param deltaTime The duration of the simulation step, in seconds.
      */
-    private void handleIdle(){
+    private void handleIdle(float deltaTime){
         if (curEnergy < MAX_ENERGY && getVelocity().y() == 0) {
-            curEnergy++;
+            curEnergy += IDLE_ENERGY_PER_SECOND * deltaTime;
             if (curEnergy > MAX_ENERGY){
                 curEnergy = MAX_ENERGY;
             }
-            renderer().setRenderable(idleAnimation);
+            setAnimation(idleAnimation);
+        }
+    }
+
+    /**
+     * Switches the avatar to an animation. Does nothing when the avatar runs without graphics.
+     * @param animation The animation to show.
+     */
+    private void setAnimation(AnimationRenderable animation) {
+        if (animation != null) {
+            renderer().setRenderable(animation);
         }
     }
 
     /**
      * Handles movement to the left, updating energy and animation.
      * @param xVel The calculated velocity for the movement.
+     * @param energy The energy spent running during the step.
      */
-    private void moveLeft(float xVel) {
-        curEnergy -= 0.5;
+    private void moveLeft(float xVel, double energy) {
+        curEnergy -= energy;
         transform().setVelocityX(xVel);
-        this.renderer().setRenderable(runAnimation);
+        setAnimation(runAnimation);
         this.renderer().setIsFlippedHorizontally(true);
     }
 
     /**
      * Handles movement to the right, updating energy and animation.
      * @param xVel The calculated velocity for the movement.
+     * @param energy The energy spent running during the step.
      */
-    private void moveRight(float xVel) {
-        curEnergy -= 0.5;
+    private void moveRight(float xVel, double energy) {
+        curEnergy -= energy;
         transform().setVelocityX(xVel);
-        this.renderer().setRenderable(runAnimation);
+        setAnimation(runAnimation);
         this.renderer().setIsFlippedHorizontally(false);
     }
 
@@ -164,8 +214,8 @@ public class Avatar extends GameObject {
      */
     private void jump() {
         transform().setVelocityY(VELOCITY_Y);
-        curEnergy -= 10;
-        renderer().setRenderable(jumpAnimation);
+        curEnergy -= JUMP_ENERGY;
+        setAnimation(jumpAnimation);
     }
 
     /**
@@ -187,24 +237,59 @@ public class Avatar extends GameObject {
         }
     }
 
+    /**
+     * Sets the energy level of the avatar, such as when restoring a saved world.
+     * @param energy The energy level, clamped between 0 and the maximum energy level.
+     */
+    public void setCurEnergy(double energy) {
+        curEnergy = Math.max(0, Math.min(MAX_ENERGY, energy));
+    }
+
 /**
-     * Registers an observer to be notified when the avatar jumps.
+     * Registers an observer to be notified when the avatar jumps nearby.
      * This allows other game objects to react to the avatar's jump action.
      * @param observer The observer to register.
+     * @param x The x-coordinate of the observer, only jumps within the notification radius
+     *          of it are reported.
+     * @return A handle cancelling the registration.
      */
-    public void registerObserver(JumpAvatarObserver observer) {
-        observersList.add(observer);
+    public JumpObserverIndex.Subscription registerObserver(JumpAvatarObserver observer, float x) {
+        return observers.register(observer, x);
     }
 
     /**
-     * Notifies all registered observers when the avatar jumps.
+     * Unregisters an observer, such as flora that was removed from the game, so it is no longer
+     * notified nor kept reachable by the avatar.
+     * @param observer The observer to unregister.
+     */
+    public void unregisterObserver(JumpAvatarObserver observer) {
+        observers.unregister(observer);
+    }
+
+    /**
+     * @return The index of the avatar's jump observers, exposing its size and dispatch timings.
+     */
+    public JumpObserverIndex getObserverIndex() {
+        return observers;
+    }
+
+    /**
+     * Sets how far from the avatar observers are notified of its jumps, typically enough to
+     * cover the visible part of the world.
+     * @param jumpNotificationRadius The radius in pixels along the x-axis.
+     */
+    public void setJumpNotificationRadius(float jumpNotificationRadius) {
+        this.jumpNotificationRadius = jumpNotificationRadius;
+    }
+
+    /**
+     * Notifies the registered observers within the notification radius when the avatar jumps.
      * This method is typically called during the avatar's jump action to trigger reactions
      * from observing objects.
      */
     private void notifyObservers() {
-        for (JumpAvatarObserver observer : observersList) {
-            observer.notifyObservers();
-        }
+        float x = getCenter().x();
+        observers.notifyInRange(x - jumpNotificationRadius, x + jumpNotificationRadius);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package pepse.world;
+
+import danogl.gui.UserInputListener;
+
+/**
+ * The source of the keys controlling the avatar. The game reads them from the keyboard, while
+ * simulations without a window can script them.
+ */
+public interface AvatarInput {
+    /**
+     * Checks whether a key is currently pressed.
+     * @param keyCode The code of the key, as in {@link java.awt.event.KeyEvent}.
+     * @return True if the key is pressed.
+     */
+    boolean isKeyPressed(int keyCode);
+
+    /**
+     * @return True if any key is currently pressed.
+     */
+    boolean isAnyKeyPressed();
+
+    /**
+     * Adapts the game's keyboard listener.
+     * @param inputListener The listener of the user's keyboard.
+     * @return The keys pressed by the user.
+     */
+    static AvatarInput of(UserInputListener inputListener) {
+        return new AvatarInput() {
+            @Override
+            public boolean isKeyPressed(int keyCode) {
+                return inputListener.isKeyPressed(keyCode);
+            }
+
+            @Override
+            public boolean isAnyKeyPressed() {
+                return !inputListener.pressedKeys().isEmpty();
+            }
+        };
+    }
+}
@@ -14,6 +14,7 @@ public class Block extends GameObject {
 
     /** The uniform size (width and height) of each block in pixels. */
     public static final int BLOCK_SIZE = 30;
+    private static final Vector2 TILE_DIMENSIONS = Vector2.ONES.mult(BLOCK_SIZE);
 
     /**
      * Constructor for creating a block instance.
@@ -21,8 +22,32 @@ public class Block extends GameObject {
      * @param renderable    The visual representation of the block.
      */
     public Block(Vector2 topLeftCorner, Renderable renderable) {
-        super(topLeftCorner, Vector2.ONES.mult(BLOCK_SIZE), renderable);
+        this(topLeftCorner, TILE_DIMENSIONS, renderable);
+    }
+
+    /**
+     * Constructor for creating a block spanning several tiles, such as a merged run of ground
+     * columns sharing the same height.
+     * @param topLeftCorner The top-left corner position of the block in the game world.
+     * @param dimensions    The width and height of the block, in pixels.
+     * @param renderable    The visual representation of the block.
+     */
+    public Block(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
     }
-}
\ No newline at end of file
+
+    /**
+     * Moves a block that is no longer in the game to a new place, so it can be reused instead of
+     * creating a new block.
+     * @param topLeftCorner The new top-left corner position of the block.
+     * @param dimensions    The new width and height of the block, in pixels.
+     * @param renderable    The new visual representation of the block.
+     */
+    public void reset(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        setTopLeftCorner(topLeftCorner);
+        setDimensions(dimensions);
+        renderer().setRenderable(renderable);
+    }
+}
@@ -0,0 +1,306 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import pepse.world.trees.Fruits;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed-width vertical slice of the world. Holds every game object generated for the slice
+ * together with the layer it belongs to, so the whole slice can be added to or removed from
+ * the game as a unit. Colliders are added through a {@link CollisionGrid}, which decides whether
+ * they currently take part in collisions. A chunk starts parked: generated, but not part of the game.
+ * A chunk is dirty until it is saved, and again whenever one of its fruits is eaten or respawns.
+ */
+class Chunk {
+    private final int index;
+    private final int minX;
+    private final int maxX;
+    private final Map<Integer, List<GameObject>> objectsByLayer = new LinkedHashMap<>();
+    private final List<ColliderGroup> colliderGroups = new ArrayList<>();
+    private final List<GameObject> terrain = new ArrayList<>();
+    private final List<GameObject> flora = new ArrayList<>();
+    // number of objects of each queried type, counted on first query
+    private final Map<Class<?>, Integer> countsByType = new HashMap<>();
+    private boolean active;
+    // the data the chunk was built from, kept so the chunk can be saved
+    private ChunkData data;
+    private boolean saved;
+    // the sum of the fruits' state versions when the chunk was last saved
+    private int savedFruitVersion;
+
+    /**
+     * Constructs an empty chunk.
+     * @param index The index of the chunk along the x-axis (chunk 0 starts at x = 0).
+     * @param minX The first x-coordinate covered by the chunk.
+     * @param maxX The x-coordinate right after the last one covered by the chunk.
+     */
+    Chunk(int index, int minX, int maxX) {
+        this.index = index;
+        this.minX = minX;
+        this.maxX = maxX;
+    }
+
+    /**
+     * Adds objects to the chunk. Objects of the same layer are added to the game in the order
+     * they were given here, which keeps the rendering order stable.
+     * @param objects The objects to add.
+     * @param layer The layer the objects belong to.
+     */
+    void addAll(List<? extends GameObject> objects, int layer) {
+        objectsByLayer.computeIfAbsent(layer, key -> new ArrayList<>()).addAll(objects);
+    }
+
+    /**
+     * Adds static colliders to the chunk. They are added to the game through the collision grid,
+     * in the order they were given here.
+     * @param colliders The colliders to add.
+     * @param activeLayer The layer of the colliders while they are near the avatar.
+     * @param dormantLayer The layer of the colliders otherwise.
+     */
+    void addColliders(List<? extends GameObject> colliders, int activeLayer, int dormantLayer) {
+        colliderGroups.add(new ColliderGroup(new ArrayList<>(colliders), activeLayer, dormantLayer));
+    }
+
+    /**
+     * Adds non-colliding terrain objects to the chunk, remembering them so they can be released
+     * on unload.
+     * @param terrainObjects The terrain objects to add.
+     * @param layer The layer the objects belong to.
+     */
+    void addTerrain(List<? extends GameObject> terrainObjects, int layer) {
+        addAll(terrainObjects, layer);
+        terrain.addAll(terrainObjects);
+    }
+
+    /**
+     * Adds terrain colliders to the chunk, remembering them so they can be released on unload.
+     * @param terrainObjects The terrain objects to add.
+     * @param activeLayer The layer of the objects while they are near the avatar.
+     * @param dormantLayer The layer of the objects otherwise.
+     */
+    void addTerrain(List<? extends GameObject> terrainObjects, int activeLayer, int dormantLayer) {
+        addColliders(terrainObjects, activeLayer, dormantLayer);
+        terrain.addAll(terrainObjects);
+    }
+
+    /**
+     * Adds flora colliders to the chunk, remembering them so they can be released on unload.
+     * @param floraObjects The flora objects to add.
+     * @param activeLayer The layer of the objects while they are near the avatar.
+     * @param dormantLayer The layer of the objects otherwise.
+     */
+    void addFlora(List<? extends GameObject> floraObjects, int activeLayer, int dormantLayer) {
+        addColliders(floraObjects, activeLayer, dormantLayer);
+        flora.addAll(floraObjects);
+    }
+
+    /**
+     * @return The terrain objects of the chunk.
+     */
+    List<GameObject> getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * @return The flora objects of the chunk.
+     */
+    List<GameObject> getFlora() {
+        return flora;
+    }
+
+    /**
+     * Adds all the objects of this chunk to the game. Does nothing if the chunk is already active.
+     * @param gameObjects The game's object collection.
+     * @param collisionGrid The grid the colliders of the chunk are added through.
+     */
+    void activate(GameObjectCollection gameObjects, CollisionGrid collisionGrid) {
+        if (active) {
+            return;
+        }
+        active = true;
+        for (Map.Entry<Integer, List<GameObject>> entry : objectsByLayer.entrySet()) {
+            for (GameObject gameObject : entry.getValue()) {
+                gameObjects.addGameObject(gameObject, entry.getKey());
+            }
+        }
+        for (ColliderGroup group : colliderGroups) {
+            for (GameObject collider : group.colliders) {
+                collisionGrid.add(collider, group.activeLayer, group.dormantLayer);
+            }
+        }
+    }
+
+    /**
+     * Removes all the objects of this chunk from the game, keeping them so the chunk can be
+     * activated again. Does nothing if the chunk is already parked.
+     * @param gameObjects The game's object collection.
+     * @param collisionGrid The grid the colliders of the chunk were added through.
+     */
+    void park(GameObjectCollection gameObjects, CollisionGrid collisionGrid) {
+        if (!active) {
+            return;
+        }
+        active = false;
+        for (Map.Entry<Integer, List<GameObject>> entry : objectsByLayer.entrySet()) {
+            for (GameObject gameObject : entry.getValue()) {
+                gameObjects.removeGameObject(gameObject, entry.getKey());
+            }
+        }
+        for (ColliderGroup group : colliderGroups) {
+            for (GameObject collider : group.colliders) {
+                collisionGrid.remove(collider);
+            }
+        }
+    }
+
+    /**
+     * Counts the terrain and flora objects of a type in the chunk. The count is computed once,
+     * as the content of a chunk never changes after it was built.
+     * @param type The type of objects to count, such as {@link Block}.
+     * @return The number of the chunk's objects of that type.
+     */
+    int count(Class<? extends GameObject> type) {
+        Integer count = countsByType.get(type);
+        if (count == null) {
+            int newCount = 0;
+            for (GameObject gameObject : terrain) {
+                newCount += type.isInstance(gameObject) ? 1 : 0;
+            }
+            for (GameObject gameObject : flora) {
+                newCount += type.isInstance(gameObject) ? 1 : 0;
+            }
+            count = newCount;
+            countsByType.put(type, count);
+        }
+        return count;
+    }
+
+    /**
+     * Remembers the data the chunk was built from.
+     * @param data The data of the chunk.
+     */
+    void setData(ChunkData data) {
+        this.data = data;
+    }
+
+    /**
+     * @return The data the chunk was built from, or null if it was not built from data.
+     */
+    ChunkData getData() {
+        return data;
+    }
+
+    /**
+     * Collects the respawn timers of the chunk's fruits.
+     * @return The time in seconds until every fruit of the chunk respawns, in the order the
+     * fruits were added, 0 for uneaten fruits.
+     */
+    float[] getFruitTimers() {
+        float[] timers = new float[count(Fruits.class)];
+        int fruit = 0;
+        for (GameObject floraObject : flora) {
+            if (floraObject instanceof Fruits) {
+                timers[fruit++] = ((Fruits) floraObject).getRemainingRespawnTime();
+            }
+        }
+        return timers;
+    }
+
+    /**
+     * Restores the respawn timers of the chunk's fruits.
+     * @param timers The time in seconds until every fruit of the chunk respawns, in the order
+     *               the fruits were added, 0 for uneaten fruits.
+     */
+    void restoreFruitTimers(float[] timers) {
+        int fruit = 0;
+        for (GameObject floraObject : flora) {
+            if (floraObject instanceof Fruits && fruit < timers.length) {
+                ((Fruits) floraObject).restoreEaten(timers[fruit++]);
+            }
+        }
+    }
+
+    /**
+     * Marks the chunk as matching its saved state.
+     */
+    void markSaved() {
+        saved = true;
+        savedFruitVersion = fruitVersion();
+    }
+
+    /**
+     * @return Whether the chunk changed since it was last saved, or was never saved.
+     */
+    boolean isDirty() {
+        return !saved || fruitVersion() != savedFruitVersion;
+    }
+
+    /**
+     * @return The sum of the state versions of the chunk's fruits, which changes whenever one
+     * of them is eaten or respawns.
+     */
+    private int fruitVersion() {
+        int version = 0;
+        for (GameObject floraObject : flora) {
+            if (floraObject instanceof Fruits) {
+                version += ((Fruits) floraObject).getStateVersion();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * @return Whether the objects of the chunk are currently in the game.
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return The index of the chunk along the x-axis.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The first x-coordinate covered by the chunk.
+     */
+    int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return The x-coordinate right after the last one covered by the chunk.
+     */
+    int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Colliders sharing the same pair of layers.
+     */
+    private static final class ColliderGroup {
+        private final List<GameObject> colliders;
+        private final int activeLayer;
+        private final int dormantLayer;
+
+        /**
+         * Constructs a group of colliders.
+         * @param colliders The colliders of the group.
+         * @param activeLayer The layer of the colliders while they are near the avatar.
+         * @param dormantLayer The layer of the colliders otherwise.
+         */
+        private ColliderGroup(List<GameObject> colliders, int activeLayer, int dormantLayer) {
+            this.colliders = colliders;
+            this.activeLayer = activeLayer;
+            this.dormantLayer = dormantLayer;
+        }
+    }
+}
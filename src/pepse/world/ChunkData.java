@@ -0,0 +1,96 @@
+package pepse.world;
+
+import pepse.world.trees.TreePlan;
+
+import java.util.List;
+
+/**
+ * Everything needed to build a chunk, computed without creating any game object: the ground
+ * height of each of its columns and the plans of its trees. Chunk data is immutable, so it can be
+ * generated on a worker thread and handed to the game thread, which builds the chunk from it.
+ * Chunk data read from a saved world also holds the respawn timers of its eaten fruits.
+ */
+class ChunkData {
+    private final int index;
+    private final int minX;
+    private final int maxX;
+    private final float[] columnHeights;
+    private final List<TreePlan> trees;
+    private final float[] fruitTimers;
+
+    /**
+     * Constructs chunk data.
+     * @param index The index of the chunk along the x-axis.
+     * @param minX The first x-coordinate covered by the chunk, aligned to the block grid.
+     * @param maxX The x-coordinate right after the last one covered by the chunk.
+     * @param columnHeights The ground height of every column of the chunk, from minX on.
+     * @param trees The plans of the trees of the chunk.
+     */
+    ChunkData(int index, int minX, int maxX, float[] columnHeights, List<TreePlan> trees) {
+        this(index, minX, maxX, columnHeights, trees, null);
+    }
+
+    /**
+     * Constructs chunk data read from a saved world.
+     * @param index The index of the chunk along the x-axis.
+     * @param minX The first x-coordinate covered by the chunk, aligned to the block grid.
+     * @param maxX The x-coordinate right after the last one covered by the chunk.
+     * @param columnHeights The ground height of every column of the chunk, from minX on.
+     * @param trees The plans of the trees of the chunk.
+     * @param fruitTimers The time in seconds until every fruit of the chunk respawns, in the
+     *                    order of the trees and their fruits, 0 for uneaten fruits. Null if
+     *                    the chunk was just generated.
+     */
+    ChunkData(int index, int minX, int maxX, float[] columnHeights, List<TreePlan> trees,
+              float[] fruitTimers) {
+        this.index = index;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.columnHeights = columnHeights;
+        this.trees = trees;
+        this.fruitTimers = fruitTimers;
+    }
+
+    /**
+     * @return The index of the chunk along the x-axis.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The first x-coordinate covered by the chunk.
+     */
+    int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return The x-coordinate right after the last one covered by the chunk.
+     */
+    int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return The ground height of every column of the chunk, from its first x-coordinate on.
+     */
+    float[] getColumnHeights() {
+        return columnHeights;
+    }
+
+    /**
+     * @return The plans of the trees of the chunk.
+     */
+    List<TreePlan> getTrees() {
+        return trees;
+    }
+
+    /**
+     * @return The time in seconds until every fruit of the chunk respawns, or null if the chunk
+     * was just generated rather than read from a saved world.
+     */
+    float[] getFruitTimers() {
+        return fruitTimers;
+    }
+}
@@ -0,0 +1,433 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import pepse.util.FrameProfiler;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Fruits;
+import pepse.world.trees.Leaves;
+import pepse.world.trees.Trunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Streams the world around the visible part of it (the camera's view) in fixed-width chunks.
+ * Terrain and flora are generated for a chunk once the view gets close enough to it, and the
+ * chunk is discarded once it falls far enough behind, so the number of live chunks, and with it
+ * the memory use, stays bounded no matter how far the avatar travels.
+ * Live chunks are also culled: only the chunks intersecting the view (plus a margin) are active
+ * in the game, the others are parked out of it, so the per-frame update, collision and render
+ * cost depends on the visible area rather than on the generated one. Within active chunks,
+ * ground blocks and flora are added through a {@link CollisionGrid}, so only the ones near the
+ * avatar are in colliding layers.
+ * Generation is split in two stages: the chunk's data (ground heights and tree layouts) is
+ * computed first, on worker threads when an executor is given, and the game thread then builds
+ * the chunk's game objects from it, within a time budget per frame. Chunks the view reaches
+ * before they were built are built right away, regardless of the budget.
+ * Given a {@link WorldStore}, chunks saved before are read from it instead of being generated,
+ * and chunks are saved when they are discarded if they changed since they were last saved.
+ */
+public class ChunkManager {
+    /** The default width of a chunk in pixels, a whole number of block columns. */
+    public static final int DEFAULT_CHUNK_WIDTH = Block.BLOCK_SIZE * 16;
+    // the avatar spawns in this column, so no tree is planted there
+    private static final int SPAWN_COLUMN_X = 0;
+    // colliding and non-colliding layers of every collider type. Trunks and ground share
+    // STATIC_OBJECTS, and leaves and fruits get layers above them, so that trunks are always
+    // rendered below leaves and leaves below fruits, whether near the avatar or not.
+    private static final int DORMANT_GROUND_LAYER = Layer.STATIC_OBJECTS - 1;
+    private static final int DORMANT_LEAVES_LAYER = Layer.STATIC_OBJECTS + 1;
+    private static final int LEAVES_LAYER = Layer.STATIC_OBJECTS + 2;
+    private static final int DORMANT_FRUITS_LAYER = Layer.STATIC_OBJECTS + 3;
+    private static final int FRUITS_LAYER = Layer.STATIC_OBJECTS + 4;
+
+    private final GameObjectCollection gameObjects;
+    private final CollisionGrid collisionGrid;
+    private final Terrain terrain;
+    private final Flora flora;
+    private final int chunkWidth;
+    private final float loadDistance;
+    private final float unloadDistance;
+    private final float cullMargin;
+    private final Map<Integer, Chunk> liveChunks = new HashMap<>();
+    // chunks whose data is being generated, or is ready to be built
+    private final Map<Integer, CompletableFuture<ChunkData>> pendingChunks = new HashMap<>();
+    // generates chunk data, or null to generate it on the game thread
+    private Executor generationExecutor;
+    private long buildBudgetNanos = Long.MAX_VALUE;
+    private FrameProfiler profiler;
+    // saved chunks are read from and written to it, or null to keep nothing
+    private WorldStore worldStore;
+
+    /**
+     * Constructs a chunk manager. Nothing is generated until the first call to {@link #update}.
+     * @param gameObjects The game's object collection, where chunks are added and removed.
+     * @param collisionGrid The grid the ground blocks and flora of active chunks are added through.
+     * @param terrain The terrain generating the ground blocks of every chunk.
+     * @param flora The flora generating the trees of every chunk.
+     * @param chunkWidth The width of a chunk in pixels, rounded up to a whole number of blocks.
+     * @param loadDistance How far (in pixels) beyond the view chunks are generated.
+     * @param unloadDistance How far (in pixels) beyond the view a chunk may fall before it is
+     *                       discarded. Raised to at least one chunk beyond the load distance, so
+     *                       chunks never thrash between loading and unloading.
+     * @param cullMargin How far (in pixels) beyond the view chunks stay active in the game.
+     */
+    public ChunkManager(GameObjectCollection gameObjects, CollisionGrid collisionGrid,
+                        Terrain terrain, Flora flora, int chunkWidth, float loadDistance,
+                        float unloadDistance, float cullMargin) {
+        this.gameObjects = gameObjects;
+        this.collisionGrid = collisionGrid;
+        this.terrain = terrain;
+        this.flora = flora;
+        this.chunkWidth = Math.max(1, (chunkWidth + Block.BLOCK_SIZE - 1) / Block.BLOCK_SIZE)
+                * Block.BLOCK_SIZE;
+        this.loadDistance = loadDistance;
+        this.unloadDistance = Math.max(unloadDistance, loadDistance + this.chunkWidth);
+        this.cullMargin = cullMargin;
+        // the avatar lives in the default layer, and must collide with the colliders near it
+        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, LEAVES_LAYER, true);
+        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, FRUITS_LAYER, true);
+    }
+
+    /**
+     * Generates chunk data in the background, and limits the time spent building chunks on the
+     * game thread every frame. By default chunks are generated and built on the game thread as
+     * soon as they are in the load distance.
+     * @param generationExecutor The executor generating chunk data, typically a pool of worker
+     *                           threads, or null to generate it on the game thread.
+     * @param buildBudgetMillis The time in milliseconds the game thread may spend building chunks
+     *                          in a frame. At least one ready chunk is built per frame.
+     */
+    public void setGenerationPipeline(Executor generationExecutor, float buildBudgetMillis) {
+        this.generationExecutor = generationExecutor;
+        this.buildBudgetNanos = (long) (buildBudgetMillis * 1_000_000);
+    }
+
+    /**
+     * Reads saved chunks from a store instead of generating them, and saves changed chunks to it
+     * when they are discarded. Should be set before the first call to {@link #update}.
+     * @param worldStore The store of the saved world, or null to keep nothing.
+     */
+    public void setWorldStore(WorldStore worldStore) {
+        this.worldStore = worldStore;
+    }
+
+    /**
+     * Saves every live chunk that changed since it was last saved, or was never saved.
+     * @return The number of chunks saved.
+     * @throws IOException If a chunk could not be saved.
+     */
+    public int saveDirtyChunks() throws IOException {
+        int savedChunks = 0;
+        if (worldStore == null) {
+            return savedChunks;
+        }
+        for (Chunk chunk : liveChunks.values()) {
+            if (chunk.isDirty()) {
+                saveChunk(chunk);
+                savedChunks++;
+            }
+        }
+        return savedChunks;
+    }
+
+    /**
+     * Generates every chunk within the load distance of the view, activates the chunks near the
+     * view while parking the others, and discards every chunk that fell beyond the unload
+     * distance, returning its objects to the terrain's and flora's pools. Discarded chunks are
+     * saved first if they changed. Should be called once per frame.
+     * @param minVisibleX The left edge of the view.
+     * @param maxVisibleX The right edge of the view.
+     */
+    public void update(float minVisibleX, float maxVisibleX) {
+        int firstIndex = chunkIndexAt(minVisibleX - loadDistance);
+        int lastIndex = chunkIndexAt(maxVisibleX + loadDistance);
+        for (int index = firstIndex; index <= lastIndex; index++) {
+            if (!liveChunks.containsKey(index) && !pendingChunks.containsKey(index)) {
+                pendingChunks.put(index, generateData(index));
+            }
+        }
+        buildPendingChunks(minVisibleX - cullMargin, maxVisibleX + cullMargin,
+                minVisibleX - unloadDistance, maxVisibleX + unloadDistance);
+
+        Iterator<Chunk> iterator = liveChunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            if (isOutside(chunk.getMinX(), chunk.getMaxX(),
+                    minVisibleX - unloadDistance, maxVisibleX + unloadDistance)) {
+                chunk.park(gameObjects, collisionGrid);
+                if (worldStore != null && chunk.isDirty()) {
+                    try {
+                        saveChunk(chunk);
+                    } catch (IOException e) {
+                        System.err.println("Failed to save chunk " + chunk.getIndex() + ": "
+                                + e.getMessage());
+                    }
+                }
+                terrain.release(chunk.getTerrain());
+                flora.release(chunk.getFlora());
+                iterator.remove();
+            } else if (isOutside(chunk.getMinX(), chunk.getMaxX(),
+                    minVisibleX - cullMargin, maxVisibleX + cullMargin)) {
+                chunk.park(gameObjects, collisionGrid);
+            } else {
+                chunk.activate(gameObjects, collisionGrid);
+            }
+        }
+    }
+
+    /**
+     * @return The number of generated chunks, whether active or parked.
+     */
+    public int getLiveChunkCount() {
+        return liveChunks.size();
+    }
+
+    /**
+     * @return The number of chunks whose data is being generated or waits to be built.
+     */
+    public int getPendingChunkCount() {
+        return pendingChunks.size();
+    }
+
+    /**
+     * @return The number of chunks currently active in the game.
+     */
+    public int getActiveChunkCount() {
+        int activeChunks = 0;
+        for (Chunk chunk : liveChunks.values()) {
+            if (chunk.isActive()) {
+                activeChunks++;
+            }
+        }
+        return activeChunks;
+    }
+
+    /**
+     * Counts the terrain and flora objects of a type in the active chunks.
+     * @param type The type of objects to count, such as {@link Block} or {@link Leaves}.
+     * @return The number of objects of that type currently in the game.
+     */
+    public int countActive(Class<? extends GameObject> type) {
+        int count = 0;
+        for (Chunk chunk : liveChunks.values()) {
+            if (chunk.isActive()) {
+                count += chunk.count(type);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records the time spent building terrain and flora in a profiler.
+     * @param profiler The profiler of the game, or null to stop recording.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * @return The width of a chunk in pixels.
+     */
+    public int getChunkWidth() {
+        return chunkWidth;
+    }
+
+    /**
+     * Calculates the index of the chunk containing a given x-coordinate.
+     * @param x The x-coordinate.
+     * @return The index of the chunk containing x.
+     */
+    private int chunkIndexAt(float x) {
+        return (int) Math.floor(x / chunkWidth);
+    }
+
+    /**
+     * Checks whether a chunk lies entirely outside an x-range.
+     * @param chunkMinX The first x-coordinate covered by the chunk.
+     * @param chunkMaxX The x-coordinate right after the last one covered by the chunk.
+     * @param minX The start of the range.
+     * @param maxX The end of the range.
+     * @return True if the chunk does not intersect the range.
+     */
+    private static boolean isOutside(int chunkMinX, int chunkMaxX, float minX, float maxX) {
+        return chunkMaxX < minX || chunkMinX > maxX;
+    }
+
+    /**
+     * Builds the pending chunks whose data is ready. Chunks within the required range are
+     * built first, waiting for their data if needed, and the others only while the frame's
+     * budget lasts. Pending chunks that fell beyond the unload range are dropped.
+     * @param minRequiredX The start of the range whose chunks must be built now.
+     * @param maxRequiredX The end of the range whose chunks must be built now.
+     * @param minKeptX The start of the range beyond which pending chunks are dropped.
+     * @param maxKeptX The end of the range beyond which pending chunks are dropped.
+     */
+    private void buildPendingChunks(float minRequiredX, float maxRequiredX,
+                                    float minKeptX, float maxKeptX) {
+        long startNanos = System.nanoTime();
+        boolean builtOptional = false;
+        Iterator<Map.Entry<Integer, CompletableFuture<ChunkData>>> iterator =
+                pendingChunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<ChunkData>> entry = iterator.next();
+            int minX = entry.getKey() * chunkWidth;
+            int maxX = minX + chunkWidth;
+            if (isOutside(minX, maxX, minKeptX, maxKeptX)) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            } else if (!isOutside(minX, maxX, minRequiredX, maxRequiredX)) {
+                liveChunks.put(entry.getKey(),
+                        buildChunk(generatedData(entry.getKey(), entry.getValue())));
+                iterator.remove();
+            }
+        }
+
+        iterator = pendingChunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<ChunkData>> entry = iterator.next();
+            if (builtOptional && System.nanoTime() - startNanos >= buildBudgetNanos) {
+                return;
+            }
+            if (entry.getValue().isDone()) {
+                liveChunks.put(entry.getKey(),
+                        buildChunk(generatedData(entry.getKey(), entry.getValue())));
+                iterator.remove();
+                builtOptional = true;
+            }
+        }
+    }
+
+    /**
+     * Writes a chunk and the state of its fruits to the world store.
+     * @param chunk The chunk to save.
+     * @throws IOException If the chunk could not be saved.
+     */
+    private void saveChunk(Chunk chunk) throws IOException {
+        worldStore.saveChunk(chunk.getData(), chunk.getFruitTimers());
+        chunk.markSaved();
+    }
+
+    /**
+     * Starts generating the data of a chunk, on the generation executor if there is one.
+     * @param index The index of the chunk to generate.
+     * @return The chunk's data, once generated.
+     */
+    private CompletableFuture<ChunkData> generateData(int index) {
+        if (generationExecutor == null) {
+            return CompletableFuture.completedFuture(createChunkData(index));
+        }
+        return CompletableFuture.supplyAsync(() -> createChunkData(index), generationExecutor);
+    }
+
+    /**
+     * Returns the data generated for a chunk. If its generation failed on a worker thread, the
+     * failure is reported and the chunk is generated again on the game thread, without reading
+     * the world store, whose saved record may be what failed.
+     * @param index The index of the chunk.
+     * @param generation The chunk's generation, done.
+     * @return The data of the chunk.
+     */
+    private ChunkData generatedData(int index, CompletableFuture<ChunkData> generation) {
+        try {
+            return generation.join();
+        } catch (CompletionException e) {
+            System.err.println("Failed to generate chunk " + index + ", generating it again: "
+                    + e.getCause());
+            return generateChunkData(index);
+        }
+    }
+
+    /**
+     * Generates the data of a chunk: the heights of its columns and the layout of its trees.
+     * The data is read from the world store if the chunk was saved before. Creates no game
+     * object, and may run on any thread.
+     * @param index The index of the chunk to generate.
+     * @return The data of the chunk.
+     */
+    private ChunkData createChunkData(int index) {
+        if (worldStore != null) {
+            try {
+                ChunkData savedData = worldStore.loadChunk(index);
+                if (savedData != null) {
+                    return savedData;
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to load chunk " + index + ", generating it again: "
+                        + e.getMessage());
+            }
+        }
+        return generateChunkData(index);
+    }
+
+    /**
+     * Generates the data of a chunk from the world's seed, ignoring the world store. Creates no
+     * game object, and may run on any thread.
+     * @param index The index of the chunk to generate.
+     * @return The data of the chunk.
+     */
+    private ChunkData generateChunkData(int index) {
+        int minX = index * chunkWidth;
+        int maxX = minX + chunkWidth;
+        float[] columnHeights = new float[chunkWidth / Block.BLOCK_SIZE];
+        terrain.groundHeightsAt(minX, columnHeights);
+        int floraMinX = minX == SPAWN_COLUMN_X ? minX + Block.BLOCK_SIZE : minX;
+        return new ChunkData(index, minX, maxX, columnHeights, flora.planInRange(floraMinX, maxX));
+    }
+
+    /**
+     * Builds the terrain and flora of a chunk from its data. Flora objects are grouped by type
+     * (trunks, leaves, fruits) to ensure correct rendering order. Runs on the game thread.
+     * @param data The data of the chunk to build.
+     * @return The built chunk, parked until it is activated.
+     */
+    private Chunk buildChunk(ChunkData data) {
+        int minX = data.getMinX();
+        Chunk chunk = new Chunk(data.getIndex(), minX, data.getMaxX());
+        long startNanos = System.nanoTime();
+        // the ground is drawn by one tile map, and only its surface takes part in collisions
+        chunk.addTerrain(Collections.singletonList(
+                terrain.createTileMap(minX, data.getColumnHeights())), Layer.BACKGROUND);
+        chunk.addTerrain(terrain.createSurfaceColliders(minX, data.getColumnHeights()),
+                Layer.STATIC_OBJECTS, DORMANT_GROUND_LAYER);
+        long terrainEndNanos = System.nanoTime();
+
+        List<GameObject> trunks = new ArrayList<>();
+        List<GameObject> leaves = new ArrayList<>();
+        List<GameObject> fruits = new ArrayList<>();
+        for (GameObject floraObject : flora.createFromPlans(data.getTrees())) {
+            if (floraObject instanceof Trunk) {
+                trunks.add(floraObject);
+            } else if (floraObject instanceof Leaves) {
+                leaves.add(floraObject);
+            } else if (floraObject instanceof Fruits) {
+                fruits.add(floraObject);
+            }
+        }
+        // Add trunks first, then leaves, then fruits
+        chunk.addFlora(trunks, Layer.STATIC_OBJECTS, DORMANT_GROUND_LAYER);
+        chunk.addFlora(leaves, LEAVES_LAYER, DORMANT_LEAVES_LAYER);
+        chunk.addFlora(fruits, FRUITS_LAYER, DORMANT_FRUITS_LAYER);
+        chunk.setData(data);
+        if (data.getFruitTimers() != null) {
+            // read from the world store, so the chunk is saved as it is
+            chunk.restoreFruitTimers(data.getFruitTimers());
+            chunk.markSaved();
+        }
+        if (profiler != null) {
+            profiler.add(FrameProfiler.Section.TERRAIN_BUILD, terrainEndNanos - startNanos);
+            profiler.add(FrameProfiler.Section.FLORA_BUILD, System.nanoTime() - terrainEndNanos);
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,253 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.util.Vector2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform-grid broad phase for static colliders, with cells of one block.
+ * Every registered object is indexed under the cells its bounds cover, and lives in one of two
+ * layers: an active layer, taking part in collisions, while it lies in the few cells around the
+ * mover (the avatar), and a dormant, non-colliding layer otherwise, where it is still rendered.
+ * The engine's broad phase therefore only ever tests the mover against the nearby colliders,
+ * so the collision cost per frame stays roughly constant no matter how much of the world is
+ * in the game. The active set is only recomputed when the mover enters a different cell.
+ */
+public class CollisionGrid {
+    private final GameObjectCollection gameObjects;
+    private final int marginCells;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<GameObject, Entry> entryOfObject = new IdentityHashMap<>();
+    private List<Entry> activeEntries = new ArrayList<>();
+    private List<Entry> nextActiveEntries = new ArrayList<>();
+    private int minCellX;
+    private int maxCellX = -1;
+    private int minCellY;
+    private int maxCellY = -1;
+    private int stamp;
+
+    /**
+     * Constructs an empty grid.
+     * @param gameObjects The game's object collection, where registered objects are added.
+     * @param marginCells How many cells around the mover's bounds are kept active.
+     */
+    public CollisionGrid(GameObjectCollection gameObjects, int marginCells) {
+        this.gameObjects = gameObjects;
+        this.marginCells = marginCells;
+    }
+
+    /**
+     * Adds a static object to the game through the grid. The object is indexed under the cells
+     * its bounds cover when it is added, so while it is registered its bounds may change only
+     * within those cells: leaves shrink as they sway ({@link pepse.world.trees.LeafAnimator}
+     * relies on this), but no object may grow or move beyond its indexed cells.
+     * @param gameObject The object to add.
+     * @param activeLayer The colliding layer used while the object is near the mover.
+     * @param dormantLayer The non-colliding layer used otherwise.
+     */
+    public void add(GameObject gameObject, int activeLayer, int dormantLayer) {
+        if (entryOfObject.containsKey(gameObject)) {
+            return;
+        }
+        Vector2 topLeft = gameObject.getTopLeftCorner();
+        Vector2 dimensions = gameObject.getDimensions();
+        Entry entry = new Entry(gameObject, activeLayer, dormantLayer,
+                cellAt(topLeft.x()), cellAt(topLeft.x() + dimensions.x()),
+                cellAt(topLeft.y()), cellAt(topLeft.y() + dimensions.y()));
+        entryOfObject.put(gameObject, entry);
+        for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+            for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+                cells.computeIfAbsent(cellKey(cellX, cellY), key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        entry.active = entry.intersects(minCellX, maxCellX, minCellY, maxCellY);
+        if (entry.active) {
+            activeEntries.add(entry);
+        }
+        gameObjects.addGameObject(gameObject, entry.currentLayer());
+    }
+
+    /**
+     * Removes an object added through the grid from the game. Does nothing if it is not registered.
+     * @param gameObject The object to remove.
+     */
+    public void remove(GameObject gameObject) {
+        Entry entry = entryOfObject.remove(gameObject);
+        if (entry == null) {
+            return;
+        }
+        for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+            for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+                long key = cellKey(cellX, cellY);
+                List<Entry> entries = cells.get(key);
+                entries.remove(entry);
+                if (entries.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+        if (entry.active) {
+            activeEntries.remove(entry);
+        }
+        gameObjects.removeGameObject(gameObject, entry.currentLayer());
+    }
+
+    /**
+     * Activates the colliders around the mover and makes the ones it left dormant.
+     * Should be called once per frame.
+     * @param moverTopLeft The top-left corner of the mover.
+     * @param moverDimensions The dimensions of the mover.
+     */
+    public void update(Vector2 moverTopLeft, Vector2 moverDimensions) {
+        int newMinCellX = cellAt(moverTopLeft.x()) - marginCells;
+        int newMaxCellX = cellAt(moverTopLeft.x() + moverDimensions.x()) + marginCells;
+        int newMinCellY = cellAt(moverTopLeft.y()) - marginCells;
+        int newMaxCellY = cellAt(moverTopLeft.y() + moverDimensions.y()) + marginCells;
+        if (newMinCellX == minCellX && newMaxCellX == maxCellX
+                && newMinCellY == minCellY && newMaxCellY == maxCellY) {
+            return;
+        }
+        minCellX = newMinCellX;
+        maxCellX = newMaxCellX;
+        minCellY = newMinCellY;
+        maxCellY = newMaxCellY;
+
+        // stamp every entry in the new window, activating the ones that were dormant
+        stamp++;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                List<Entry> entries = cells.get(cellKey(cellX, cellY));
+                if (entries == null) {
+                    continue;
+                }
+                for (Entry entry : entries) {
+                    if (entry.stamp == stamp) {
+                        continue;
+                    }
+                    entry.stamp = stamp;
+                    nextActiveEntries.add(entry);
+                    if (!entry.active) {
+                        moveTo(entry, true);
+                    }
+                }
+            }
+        }
+        // entries that were active but not stamped left the window
+        for (Entry entry : activeEntries) {
+            if (entry.stamp != stamp) {
+                moveTo(entry, false);
+            }
+        }
+        List<Entry> swap = activeEntries;
+        activeEntries = nextActiveEntries;
+        nextActiveEntries = swap;
+        nextActiveEntries.clear();
+    }
+
+    /**
+     * @return The number of objects registered in the grid.
+     */
+    public int size() {
+        return entryOfObject.size();
+    }
+
+    /**
+     * @return The number of registered objects currently in their colliding layer.
+     */
+    public int getActiveCount() {
+        return activeEntries.size();
+    }
+
+    /**
+     * Moves an entry's object between its active and dormant layers.
+     * @param entry The entry to move.
+     * @param active Whether the object should be in its active layer.
+     */
+    private void moveTo(Entry entry, boolean active) {
+        gameObjects.removeGameObject(entry.gameObject, entry.currentLayer());
+        entry.active = active;
+        gameObjects.addGameObject(entry.gameObject, entry.currentLayer());
+    }
+
+    /**
+     * Calculates the cell containing a coordinate.
+     * @param coordinate The x or y coordinate.
+     * @return The index of the cell along that axis.
+     */
+    private static int cellAt(float coordinate) {
+        return (int) Math.floor(coordinate / Block.BLOCK_SIZE);
+    }
+
+    /**
+     * Packs the indices of a cell into a single key.
+     * @param cellX The index of the cell along the x-axis.
+     * @param cellY The index of the cell along the y-axis.
+     * @return The key of the cell.
+     */
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * An object registered in the grid, with the cells it covers and its current state.
+     */
+    private static final class Entry {
+        private final GameObject gameObject;
+        private final int activeLayer;
+        private final int dormantLayer;
+        private final int minCellX;
+        private final int maxCellX;
+        private final int minCellY;
+        private final int maxCellY;
+        private boolean active;
+        private int stamp;
+
+        /**
+         * Constructs a dormant entry.
+         * @param gameObject The registered object.
+         * @param activeLayer The colliding layer of the object.
+         * @param dormantLayer The non-colliding layer of the object.
+         * @param minCellX The first cell covered along the x-axis.
+         * @param maxCellX The last cell covered along the x-axis.
+         * @param minCellY The first cell covered along the y-axis.
+         * @param maxCellY The last cell covered along the y-axis.
+         */
+        private Entry(GameObject gameObject, int activeLayer, int dormantLayer,
+                      int minCellX, int maxCellX, int minCellY, int maxCellY) {
+            this.gameObject = gameObject;
+            this.activeLayer = activeLayer;
+            this.dormantLayer = dormantLayer;
+            this.minCellX = minCellX;
+            this.maxCellX = maxCellX;
+            this.minCellY = minCellY;
+            this.maxCellY = maxCellY;
+        }
+
+        /**
+         * @return The layer the object is currently in.
+         */
+        private int currentLayer() {
+            return active ? activeLayer : dormantLayer;
+        }
+
+        /**
+         * Checks whether the entry covers any cell of a window.
+         * @param fromCellX The first cell of the window along the x-axis.
+         * @param toCellX The last cell of the window along the x-axis.
+         * @param fromCellY The first cell of the window along the y-axis.
+         * @param toCellY The last cell of the window along the y-axis.
+         * @return True if the entry intersects the window.
+         */
+        private boolean intersects(int fromCellX, int toCellX, int fromCellY, int toCellY) {
+            return minCellX <= toCellX && maxCellX >= fromCellX
+                    && minCellY <= toCellY && maxCellY >= fromCellY;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pepse.world;
+
+/**
+ * Provides the height of the ground along the x-axis, as primitive floats so queries never box
+ * their results or lose sub-pixel precision. Implemented by {@link Terrain}.
+ */
+@FunctionalInterface
+public interface GroundHeightProvider {
+
+    /**
+     * Returns the height of the ground at an x-coordinate.
+     * @param x The x-coordinate.
+     * @return The ground height at x.
+     */
+    float groundHeightAt(float x);
+
+    /**
+     * Fills an array with the ground heights of consecutive block columns.
+     * @param firstColumnX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The array receiving one height per column, starting with the first column.
+     */
+    default void groundHeightsAt(int firstColumnX, float[] heights) {
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = groundHeightAt(firstColumnX + i * Block.BLOCK_SIZE);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pepse.world;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the ground height of block columns, so repeated queries for the same column are
+ * array lookups instead of noise evaluations.
+ * Heights are stored in pages of consecutive columns, kept as primitive float arrays, and the
+ * least recently used page is evicted once the cache holds its maximal number of pages.
+ * Hit and miss counters are kept per column query, to help sizing the cache.
+ * The cache is thread-safe, so world generation running on worker threads shares it with the
+ * game thread. Pages live in a concurrent map and are computed outside of any shared lock: a
+ * thread computing a page only blocks the threads asking for that same page. The only lock is the
+ * one around the pages' recency order, held for a few map operations per page queried.
+ */
+public class HeightmapCache {
+    private final int columnsPerPage;
+    private final int maxPages;
+    private final PageLoader loader;
+    private final Map<Integer, float[]> pages = new ConcurrentHashMap<>();
+    // the cached page indices, from the least to the most recently used, guarded by itself
+    private final LinkedHashMap<Integer, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Computes the heights of a page of columns on a cache miss.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+        /**
+         * Fills an array with the ground heights of consecutive columns.
+         * @param firstColumnX The x-coordinate of the first column of the page.
+         * @param heights The array receiving one height per column.
+         */
+        void load(int firstColumnX, float[] heights);
+    }
+
+    /**
+     * Constructs an empty heightmap cache.
+     * @param columnsPerPage The number of consecutive columns stored together.
+     * @param maxPages The maximal number of pages kept before the least recently used is evicted.
+     * @param loader Computes the heights of a page on a cache miss.
+     */
+    public HeightmapCache(int columnsPerPage, int maxPages, PageLoader loader) {
+        this.columnsPerPage = columnsPerPage;
+        this.maxPages = maxPages;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the ground height of a column, computing and caching its page on a miss.
+     * @param column The index of the column (its x-coordinate divided by the block size).
+     * @return The ground height of the column.
+     */
+    public float heightAt(int column) {
+        int pageIndex = Math.floorDiv(column, columnsPerPage);
+        queries.increment();
+        return page(pageIndex, 1)[column - pageIndex * columnsPerPage];
+    }
+
+    /**
+     * Fills an array with the ground heights of consecutive columns, fetching each page they
+     * span once.
+     * @param firstColumn The index of the first column.
+     * @param heights The array receiving one height per column.
+     */
+    public void heightsAt(int firstColumn, float[] heights) {
+        int i = 0;
+        while (i < heights.length) {
+            int column = firstColumn + i;
+            int pageIndex = Math.floorDiv(column, columnsPerPage);
+            int pageOffset = column - pageIndex * columnsPerPage;
+            int count = Math.min(heights.length - i, columnsPerPage - pageOffset);
+            System.arraycopy(page(pageIndex, count), pageOffset, heights, i, count);
+            queries.add(count);
+            i += count;
+        }
+    }
+
+    /**
+     * Returns a page, computing it if it is not cached, marks it as the most recently used and
+     * evicts the least recently used pages beyond the maximal number of pages.
+     * @param pageIndex The index of the page.
+     * @param columns The number of columns queried from the page, all counted as misses if this
+     *                call computes the page.
+     * @return The heights of the page's columns.
+     */
+    private float[] page(int pageIndex, int columns) {
+        float[] page = pages.get(pageIndex);
+        if (page == null) {
+            page = pages.computeIfAbsent(pageIndex, index -> {
+                misses.add(columns);
+                float[] heights = new float[columnsPerPage];
+                loader.load(index * columnsPerPage * Block.BLOCK_SIZE, heights);
+                return heights;
+            });
+        }
+        synchronized (recency) {
+            recency.put(pageIndex, Boolean.TRUE);
+            while (recency.size() > maxPages) {
+                Integer eldest = recency.keySet().iterator().next();
+                recency.remove(eldest);
+                pages.remove(eldest);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return The number of column queries answered from a cached page.
+     */
+    public long getHits() {
+        return queries.sum() - misses.sum();
+    }
+
+    /**
+     * @return The number of column queries that had to compute their page.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of pages currently cached.
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+}
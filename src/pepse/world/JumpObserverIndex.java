@@ -0,0 +1,279 @@
+package pepse.world;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A spatial index of jump observers, bucketing them by their x-coordinate so a jump only
+ * reaches the observers near it, no matter how many observers the world holds.
+ * Every registration returns a {@link Subscription} handle that cancels it. In weak mode the index
+ * holds its observers through weak references, so an observer dropped by the rest of the game is
+ * never kept alive by the index and is pruned on a later dispatch. Observers may register or
+ * unregister from inside a notification; such changes take effect once the dispatch is over.
+ */
+public class JumpObserverIndex {
+    private final int bucketWidth;
+    private final boolean weakReferences;
+    private final Map<Integer, List<Entry>> buckets = new HashMap<>();
+    private final Map<JumpAvatarObserver, Entry> entryOfObserver;
+    private final List<Entry> pendingRemovals = new ArrayList<>();
+    private final List<Entry> pendingAdditions = new ArrayList<>();
+    private boolean dispatching;
+    private long dispatchCount;
+    private long lastDispatchNanos;
+    private long totalDispatchNanos;
+    private int lastNotifiedCount;
+
+    /**
+     * A handle to a registration in the index.
+     */
+    public interface Subscription {
+        /**
+         * Unregisters the observer. Does nothing if the registration was already cancelled.
+         */
+        void cancel();
+
+        /**
+         * @return Whether the observer is still registered.
+         */
+        boolean isActive();
+    }
+
+    /**
+     * Constructs an empty index holding its observers through strong references.
+     * @param bucketWidth The width in pixels of the x-range covered by each bucket.
+     */
+    public JumpObserverIndex(int bucketWidth) {
+        this(bucketWidth, false);
+    }
+
+    /**
+     * Constructs an empty index.
+     * @param bucketWidth The width in pixels of the x-range covered by each bucket.
+     * @param weakReferences If true, observers are held through weak references and do not
+     *                       stay reachable through the index alone.
+     */
+    public JumpObserverIndex(int bucketWidth, boolean weakReferences) {
+        this.bucketWidth = bucketWidth;
+        this.weakReferences = weakReferences;
+        this.entryOfObserver = weakReferences ? new WeakHashMap<>() : new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds an observer to the index. Registering an observer again moves it to the new position
+     * and cancels its previous subscription.
+     * @param observer The observer to add.
+     * @param x The x-coordinate of the observer.
+     * @return The handle of the registration.
+     */
+    public Subscription register(JumpAvatarObserver observer, float x) {
+        unregister(observer);
+        Entry entry = new Entry(observer, bucketAt(x));
+        entryOfObserver.put(observer, entry);
+        if (dispatching) {
+            pendingAdditions.add(entry);
+        } else {
+            addToBucket(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Removes an observer from the index. Does nothing if the observer is not registered.
+     * @param observer The observer to remove.
+     */
+    public void unregister(JumpAvatarObserver observer) {
+        Entry entry = entryOfObserver.get(observer);
+        if (entry != null) {
+            entry.cancel();
+        }
+    }
+
+    /**
+     * Notifies the observers of every bucket overlapping an x-range.
+     * Observers are bucketed, so ones slightly outside the range may be notified as well.
+     * @param minX The start of the range.
+     * @param maxX The end of the range.
+     */
+    public void notifyInRange(float minX, float maxX) {
+        long start = System.nanoTime();
+        int notified = 0;
+        dispatching = true;
+        try {
+            int lastBucket = bucketAt(maxX);
+            for (int bucket = bucketAt(minX); bucket <= lastBucket; bucket++) {
+                List<Entry> entries = buckets.get(bucket);
+                if (entries == null) {
+                    continue;
+                }
+                for (Entry entry : entries) {
+                    JumpAvatarObserver observer = entry.get();
+                    if (observer != null) {
+                        observer.notifyObservers();
+                        notified++;
+                    } else if (entry.active) {
+                        // the observer was garbage collected
+                        entry.cancel();
+                    }
+                }
+            }
+        } finally {
+            dispatching = false;
+            applyPendingChanges();
+        }
+        lastNotifiedCount = notified;
+        lastDispatchNanos = System.nanoTime() - start;
+        totalDispatchNanos += lastDispatchNanos;
+        dispatchCount++;
+    }
+
+    /**
+     * @return The number of registered observers. In weak mode, this includes observers that
+     * were garbage collected but not yet pruned.
+     */
+    public int size() {
+        return entryOfObserver.size();
+    }
+
+    /**
+     * @return Whether observers are held through weak references.
+     */
+    public boolean isWeak() {
+        return weakReferences;
+    }
+
+    /**
+     * @return The number of dispatches done so far.
+     */
+    public long getDispatchCount() {
+        return dispatchCount;
+    }
+
+    /**
+     * @return The duration of the last dispatch, in nanoseconds.
+     */
+    public long getLastDispatchNanos() {
+        return lastDispatchNanos;
+    }
+
+    /**
+     * @return The total duration of all dispatches so far, in nanoseconds.
+     */
+    public long getTotalDispatchNanos() {
+        return totalDispatchNanos;
+    }
+
+    /**
+     * @return The number of observers notified by the last dispatch.
+     */
+    public int getLastNotifiedCount() {
+        return lastNotifiedCount;
+    }
+
+    /**
+     * Calculates the bucket containing an x-coordinate.
+     * @param x The x-coordinate.
+     * @return The index of the bucket.
+     */
+    private int bucketAt(float x) {
+        return (int) Math.floor(x / bucketWidth);
+    }
+
+    /**
+     * Adds an entry to the bucket it belongs to.
+     * @param entry The entry to add.
+     */
+    private void addToBucket(Entry entry) {
+        buckets.computeIfAbsent(entry.bucket, key -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Removes an entry from the bucket it belongs to.
+     * @param entry The entry to remove.
+     */
+    private void removeFromBucket(Entry entry) {
+        List<Entry> entries = buckets.get(entry.bucket);
+        if (entries == null) {
+            return;
+        }
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            buckets.remove(entry.bucket);
+        }
+    }
+
+    /**
+     * Applies the registrations and cancellations made during a dispatch.
+     */
+    private void applyPendingChanges() {
+        for (Entry entry : pendingRemovals) {
+            removeFromBucket(entry);
+        }
+        pendingRemovals.clear();
+        for (Entry entry : pendingAdditions) {
+            if (entry.active) {
+                addToBucket(entry);
+            }
+        }
+        pendingAdditions.clear();
+    }
+
+    /**
+     * A registration of an observer, holding it strongly or weakly depending on the index mode.
+     */
+    private final class Entry implements Subscription {
+        private final JumpAvatarObserver strongObserver;
+        private final WeakReference<JumpAvatarObserver> weakObserver;
+        private final int bucket;
+        private boolean active = true;
+
+        /**
+         * Constructs an active entry.
+         * @param observer The registered observer.
+         * @param bucket The bucket the observer belongs to.
+         */
+        private Entry(JumpAvatarObserver observer, int bucket) {
+            this.strongObserver = weakReferences ? null : observer;
+            this.weakObserver = weakReferences ? new WeakReference<>(observer) : null;
+            this.bucket = bucket;
+        }
+
+        /**
+         * @return The registered observer, or null if the entry was cancelled or the observer
+         * was garbage collected.
+         */
+        private JumpAvatarObserver get() {
+            if (!active) {
+                return null;
+            }
+            return weakReferences ? weakObserver.get() : strongObserver;
+        }
+
+        @Override
+        public void cancel() {
+            if (!active) {
+                return;
+            }
+            active = false;
+            JumpAvatarObserver observer = weakReferences ? weakObserver.get() : strongObserver;
+            if (observer != null && entryOfObserver.get(observer) == this) {
+                entryOfObserver.remove(observer);
+            }
+            if (dispatching) {
+                pendingRemovals.add(this);
+            } else {
+                removeFromBucket(this);
+            }
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+    }
+}
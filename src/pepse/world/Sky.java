@@ -1,29 +0,0 @@
-package pepse.world;
-
-import danogl.GameObject;
-import danogl.components.CoordinateSpace;
-import danogl.gui.rendering.RectangleRenderable;
-import danogl.util.Vector2;
-
-import java.awt.*;
-
-/**
- * Utility class for creating a static sky background in the game world.
- */
-public class Sky {
-    private static final Color BASIC_SKY_COLOR = Color.decode("#80C6E5");
-
-    /**
-     * Creates the sky
-     * @param windowDimensions size we want the sky to be
-     * @return the sky we just created, spanning the entire game window
-     */
-    public static GameObject create(Vector2 windowDimensions) {
-        GameObject sky = new GameObject(
-                Vector2.ZERO, windowDimensions,
-                new RectangleRenderable(BASIC_SKY_COLOR));
-        sky.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
-        sky.setTag("sky");
-        return sky;
-    }
-}
@@ -3,21 +3,38 @@ package pepse.world;
 import java.awt.*;
 import java.util.List;
 import java.util.ArrayList;
+import danogl.GameObject;
 import danogl.util.Vector2;
 
-import pepse.util.ColorSupplier;
 import pepse.util.NoiseGenerator;
-import danogl.gui.rendering.RectangleRenderable;
+import pepse.util.ObjectPool;
+import pepse.util.RenderablePalette;
 
 /**
- * Represents the terrain in the game, including ground height variations and the creation of terrain blocks.
+ * Represents the terrain in the game, including ground height variations and the creation of the ground.
  * Utilizes noise generation to create natural-looking landscapes.
+ * The ground of a range is drawn by one {@link TileMap}, storing its tiles in primitive arrays,
+ * while the physics only sees invisible surface colliders, one per run of equal-height columns.
+ * Ground heights may be queried from any thread, while game objects are only created on the
+ * game thread.
  */
-public class Terrain {
+public class Terrain implements GroundHeightProvider {
     private final float groundHeightAtX0;
     private final NoiseGenerator noiseGenerator;
+    private final RenderablePalette groundPalette = RenderablePalette.of(BASE_GROUND_COLOR);
+    private final HeightmapCache heightmapCache =
+            new HeightmapCache(HEIGHTMAP_PAGE_COLUMNS, HEIGHTMAP_MAX_PAGES, this::computeGroundHeightsAt);
     private static final Color BASE_GROUND_COLOR = new Color(212, 123, 74);
     private static final int TERRAIN_DEPTH = 20;
+    private static final double NOISE_FACTOR = Block.BLOCK_SIZE * 7;
+    private static final int HEIGHTMAP_PAGE_COLUMNS = 32;
+    private static final int HEIGHTMAP_MAX_PAGES = 64;
+    private static final String GROUND_TAG = "ground";
+    private static final int BLOCK_POOL_CAPACITY = 4096;
+    private static final int TILE_MAP_POOL_CAPACITY = 64;
+    // colliders and tile maps of unloaded chunks, reused by the next chunks built on the game thread
+    private final ObjectPool<Block> blockPool = new ObjectPool<>(BLOCK_POOL_CAPACITY);
+    private final ObjectPool<TileMap> tileMapPool = new ObjectPool<>(TILE_MAP_POOL_CAPACITY);
 
     /**
      * Constructor for Terrain.
@@ -32,43 +49,191 @@ public class Terrain {
 
     /**
      * Calculates the height of the ground at a specific x-coordinate based on noise.
+     * Heights of block columns are served from the heightmap cache.
      * @param x The x-coordinate for which to calculate the ground height.
      * @return The calculated ground height at the specified x-coordinate.
      */
+    @Override
     public float groundHeightAt(float x) {
+        int column = (int) Math.floor(x / Block.BLOCK_SIZE);
+        if (column * Block.BLOCK_SIZE == x) {
+            return heightmapCache.heightAt(column);
+        }
+        return computeGroundHeightAt(x);
+    }
+
+    /**
+     * Calculates the ground height of consecutive block columns in one batch, as if
+     * {@link #groundHeightAt} was called for each column. Safe to call from any thread, so
+     * heights can be prepared ahead of the game thread.
+     * @param firstColumnX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The array receiving one height per column, starting with the first column.
+     */
+    @Override
+    public void groundHeightsAt(int firstColumnX, float[] heights) {
+        heightmapCache.heightsAt(Math.floorDiv(firstColumnX, Block.BLOCK_SIZE), heights);
+    }
+
+    /**
+     * @return The height the ground's noise is added to, derived from the window's height.
+     */
+    public float getBaseHeight() {
+        return groundHeightAtX0;
+    }
+
+    /**
+     * @return The cache of column heights, exposing its hit and miss counters.
+     */
+    public HeightmapCache getHeightmapCache() {
+        return heightmapCache;
+    }
+
+    /**
+     * Calculates the height of the ground at a specific x-coordinate from the noise, bypassing
+     * the heightmap cache.
+     * @param x The x-coordinate for which to calculate the ground height.
+     * @return The calculated ground height at the specified x-coordinate.
+     */
+    private float computeGroundHeightAt(float x) {
         // Use Perlin noise to generate ground height
-        float noise = (float)noiseGenerator.noise(x, Block.BLOCK_SIZE * 7); // Adjust as needed
+        float noise = (float)noiseGenerator.noise(x, NOISE_FACTOR);
         return groundHeightAtX0 + noise;
     }
 
     /**
-     * Creates terrain blocks within a specified range along the x-axis.
-     * This method generates a list of ground blocks based on the calculated terrain height and depth.
-     * @param minX The starting x-coordinate for terrain generation.
-     * @param maxX The ending x-coordinate for terrain generation.
-     * @return A list of {@link Block} objects representing the terrain within the specified range.
+     * Calculates the ground height of consecutive block columns from the noise in one batch,
+     * bypassing the heightmap cache.
+     * @param firstColumnX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The array receiving one height per column, starting with the first column.
+     */
+    private void computeGroundHeightsAt(int firstColumnX, float[] heights) {
+        noiseGenerator.noise(heights, 0, heights.length, firstColumnX, Block.BLOCK_SIZE, NOISE_FACTOR);
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] += groundHeightAtX0;
+        }
+    }
+
+    /**
+     * Creates the tile map drawing the ground of consecutive columns whose heights were already
+     * calculated, possibly on another thread, by {@link #groundHeightsAt}. The tile map takes no
+     * part in collisions, and is meant to go with the colliders of {@link #createSurfaceColliders}.
+     * @param startX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The ground height of each column, in order.
+     * @return The tile map of the columns.
+     */
+    public TileMap createTileMap(int startX, float[] heights) {
+        int[] columnSurfaceY = new int[heights.length];
+        for (int column = 0; column < heights.length; column++) {
+            columnSurfaceY[column] = surfaceY(heights[column]);
+        }
+        TileMap tileMap = tileMapPool.acquire();
+        if (tileMap == null) {
+            tileMap = new TileMap(groundPalette, TERRAIN_DEPTH);
+        }
+        tileMap.reset(startX, columnSurfaceY);
+        return tileMap;
+    }
+
+    /**
+     * Creates the invisible surface colliders of consecutive columns whose heights were already
+     * calculated, one per run of equal-height columns. The ground itself is drawn by the tile map
+     * of {@link #createTileMap}.
+     * @param startX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The ground height of each column, in order.
+     * @return The surface colliders of the columns.
+     */
+    public List<Block> createSurfaceColliders(int startX, float[] heights) {
+        List<Block> surface = new ArrayList<>();
+        forEachRun(startX, heights, (runX, runY, runWidth) -> {
+            Vector2 topLeft = new Vector2(runX, runY);
+            Vector2 dimensions = new Vector2(runWidth, Block.BLOCK_SIZE);
+            Block groundBlock = blockPool.acquire();
+            if (groundBlock == null) {
+                groundBlock = new Block(topLeft, dimensions, null);
+                groundBlock.setTag(GROUND_TAG);
+            } else {
+                groundBlock.reset(topLeft, dimensions, null);
+            }
+            surface.add(groundBlock);
+        });
+        return surface;
+    }
+
+    /**
+     * Returns terrain objects removed from the game to their pools, so the next ranges created
+     * reuse them. Runs on the game thread.
+     * @param terrainObjects The colliders and tile maps created by this terrain, no longer in
+     *                       the game.
      */
-    public List<Block> createInRange(int minX, int maxX) {
-        List<Block> blocks = new ArrayList<>();
-
-        int endX = ((maxX + Block.BLOCK_SIZE - 1) / Block.BLOCK_SIZE) * Block.BLOCK_SIZE;
-        // Loop over each X-coordinate within the specified range
-        for (int x = minX; x <= endX; x += Block.BLOCK_SIZE) {
-            float groundHeight = groundHeightAt(x);
-            // Calculate the Y-coordinate for the ground
-            int startY = (int) ((Math.floor(groundHeight / Block.BLOCK_SIZE) * Block.BLOCK_SIZE));
-            // Create blocks within the terrain depth
-            for (int i = 0; i < TERRAIN_DEPTH; i++){
-                int y = startY + Block.BLOCK_SIZE * i;
-                //Color baseColor = chooseRandomBaseColor();
-                RectangleRenderable renderable =
-                        new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
-                // Create a block at the current position
-                Block groundBlock = new Block(new Vector2(x, y), renderable);
-                groundBlock.setTag("ground");
-                blocks.add(groundBlock);
+    public void release(List<? extends GameObject> terrainObjects) {
+        for (GameObject terrainObject : terrainObjects) {
+            if (terrainObject instanceof Block) {
+                blockPool.release((Block) terrainObject);
+            } else if (terrainObject instanceof TileMap) {
+                tileMapPool.release((TileMap) terrainObject);
             }
         }
-        return blocks;
+    }
+
+    /**
+     * @return The pool of surface colliders, exposing its size and hit rate.
+     */
+    public ObjectPool<Block> getBlockPool() {
+        return blockPool;
+    }
+
+    /**
+     * @return The pool of tile maps, exposing its size and hit rate.
+     */
+    public ObjectPool<TileMap> getTileMapPool() {
+        return tileMapPool;
+    }
+
+    /**
+     * Walks consecutive block columns and reports every maximal run of adjacent columns sharing
+     * the same surface height.
+     * @param startX The x-coordinate of the first column, aligned to the block grid.
+     * @param heights The ground height of each column, in order.
+     * @param consumer Receives the left x, the surface y and the width of each run.
+     */
+    private void forEachRun(int startX, float[] heights, RunConsumer consumer) {
+        if (heights.length == 0) {
+            return;
+        }
+        int runStart = 0;
+        int runY = surfaceY(heights[0]);
+        for (int column = 1; column < heights.length; column++) {
+            int y = surfaceY(heights[column]);
+            if (y != runY) {
+                consumer.accept(startX + runStart * Block.BLOCK_SIZE, runY,
+                        (column - runStart) * Block.BLOCK_SIZE);
+                runStart = column;
+                runY = y;
+            }
+        }
+        consumer.accept(startX + runStart * Block.BLOCK_SIZE, runY,
+                (heights.length - runStart) * Block.BLOCK_SIZE);
+    }
+
+    /**
+     * Calculates the y-coordinate of the top block of a column, aligned to the block grid.
+     * @param groundHeight The ground height of the column.
+     * @return The y-coordinate of the column's surface block.
+     */
+    private static int surfaceY(float groundHeight) {
+        return (int) (Math.floor(groundHeight / Block.BLOCK_SIZE) * Block.BLOCK_SIZE);
+    }
+
+    /**
+     * Receives the runs of equal-height columns found by {@link #forEachRun}.
+     */
+    @FunctionalInterface
+    private interface RunConsumer {
+        /**
+         * @param x The left x-coordinate of the run.
+         * @param y The surface y-coordinate shared by the run.
+         * @param width The width of the run in pixels.
+         */
+        void accept(int x, int y, int width);
     }
 }
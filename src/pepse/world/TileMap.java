@@ -0,0 +1,143 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.util.RenderablePalette;
+
+import java.awt.*;
+
+/**
+ * The ground tiles of consecutive block columns, stored as primitive arrays instead of one game
+ * object per tile: the surface y-coordinate of every column, and the palette index of every
+ * tile's color. All the tiles are drawn by a single renderable, merging vertically adjacent tiles
+ * of the same color into one rectangle, and only the tiles intersecting the drawing area are
+ * drawn. A tile map takes no part in collisions; the ground's surface colliders are created
+ * separately by the terrain.
+ */
+public class TileMap extends GameObject {
+    private final RenderablePalette palette;
+    private final int depth;
+    private int startX;
+    private int minSurfaceY;
+    // the y-coordinate of the top tile of every column
+    private int[] surfaceY = new int[0];
+    // the palette index of every tile, column by column from the top tile down
+    private byte[] colorIndices = new byte[0];
+
+    /**
+     * Constructs an empty tile map, to be filled by {@link #reset}.
+     * @param palette The palette the tiles' colors are picked from, of at most 128 colors.
+     * @param depth The number of tiles in every column.
+     */
+    TileMap(RenderablePalette palette, int depth) {
+        super(Vector2.ZERO, Vector2.ONES, null);
+        this.palette = palette;
+        this.depth = depth;
+        renderer().setRenderable(new TilesRenderable());
+    }
+
+    /**
+     * Fills the tile map with the tiles of consecutive columns, reusing its arrays when the
+     * number of columns did not change.
+     * @param startX The x-coordinate of the first column, aligned to the block grid.
+     * @param columnSurfaceY The y-coordinate of the top tile of every column, in order.
+     */
+    void reset(int startX, int[] columnSurfaceY) {
+        int columns = columnSurfaceY.length;
+        if (surfaceY.length != columns) {
+            surfaceY = new int[columns];
+            colorIndices = new byte[columns * depth];
+        }
+        this.startX = startX;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int column = 0; column < columns; column++) {
+            int x = startX + column * Block.BLOCK_SIZE;
+            int y = columnSurfaceY[column];
+            surfaceY[column] = y;
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            for (int row = 0; row < depth; row++) {
+                colorIndices[column * depth + row] =
+                        (byte) palette.indexAt(x, y + row * Block.BLOCK_SIZE);
+            }
+        }
+        minSurfaceY = columns == 0 ? 0 : minY;
+        setTopLeftCorner(new Vector2(startX, minSurfaceY));
+        setDimensions(new Vector2(columns * Block.BLOCK_SIZE,
+                columns == 0 ? 0 : maxY - minY + depth * Block.BLOCK_SIZE));
+    }
+
+    /**
+     * @return The x-coordinate of the first column.
+     */
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * @return The number of columns in the tile map.
+     */
+    public int getColumnCount() {
+        return surfaceY.length;
+    }
+
+    /**
+     * @param column The index of a column, from the first one.
+     * @return The y-coordinate of the column's top tile.
+     */
+    public int getSurfaceY(int column) {
+        return surfaceY[column];
+    }
+
+    /**
+     * Draws every tile of the map from its arrays.
+     */
+    private class TilesRenderable implements Renderable {
+        /**
+         * Draws the tiles intersecting the drawing area, as runs of same-colored tiles.
+         * @param g The graphics to draw with.
+         * @param topLeftCorner The top-left corner of the tile map on the screen.
+         * @param dimensions The dimensions of the tile map on the screen.
+         * @param degreesCounterClockwise Unused, the ground is never rotated.
+         * @param isFlippedHorizontally Unused, the ground is never flipped.
+         * @param isFlippedVertically Unused, the ground is never flipped.
+         * @param opaqueness Unused, the ground is always opaque.
+         */
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            int columns = surfaceY.length;
+            if (columns == 0) {
+                return;
+            }
+            float scaleX = dimensions.x() / (columns * Block.BLOCK_SIZE);
+            float scaleY = dimensions.y()
+                    / (getDimensions().y() == 0 ? 1 : getDimensions().y());
+            Rectangle clip = g.getClipBounds();
+            for (int column = 0; column < columns; column++) {
+                int left = Math.round(topLeftCorner.x() + column * Block.BLOCK_SIZE * scaleX);
+                int right = Math.round(topLeftCorner.x() + (column + 1) * Block.BLOCK_SIZE * scaleX);
+                if (clip != null && (right < clip.x || left > clip.x + clip.width)) {
+                    continue;
+                }
+                float columnTop = topLeftCorner.y() + (surfaceY[column] - minSurfaceY) * scaleY;
+                int row = 0;
+                while (row < depth) {
+                    byte colorIndex = colorIndices[column * depth + row];
+                    int runEnd = row + 1;
+                    while (runEnd < depth && colorIndices[column * depth + runEnd] == colorIndex) {
+                        runEnd++;
+                    }
+                    int top = Math.round(columnTop + row * Block.BLOCK_SIZE * scaleY);
+                    int bottom = Math.round(columnTop + runEnd * Block.BLOCK_SIZE * scaleY);
+                    g.setColor(palette.colorAt(colorIndex));
+                    g.fillRect(left, top, right - left, bottom - top);
+                    row = runEnd;
+                }
+            }
+        }
+    }
+}
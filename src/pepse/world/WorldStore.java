@@ -0,0 +1,541 @@
+package pepse.world;
+
+import pepse.world.trees.LeafAnimator;
+import pepse.world.trees.TreePlan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves generated chunks and the avatar's state to a directory, so a world comes back as it was
+ * left instead of being generated again.
+ * Chunks are grouped in region files of {@value #CHUNKS_PER_REGION} consecutive chunks. A region
+ * starts with an index holding the offset and length of every chunk's record, and is read through
+ * a memory-mapped buffer, so loading a chunk copies its heights and tree descriptions straight
+ * from the mapped file instead of running noise and random generators again.
+ * A chunk's record holds the ground height of its columns, and for every tree the position and
+ * height of its trunk, a bit mask of the cells holding a leaf, the leaves' sway phases (quantized
+ * to a byte each), and the offset and respawn timer of every fruit.
+ * Records are never written over: a chunk saved again is appended to its region, and the region's
+ * index only points to it once {@link #flush} forced the appended records to the disk, so a crash
+ * loses at most the chunks saved since the last flush and never leaves the index pointing to a
+ * half-written record. The records a chunk's newer record superseded are dead space, and once a
+ * region's dead space outgrows its live records, flushing rewrites the region with its live
+ * records only, into a new file atomically replacing the old one.
+ * Heights are absolute y-coordinates, which depend on the terrain's base height, itself derived
+ * from the window's height. The world file and every region record the base height they were
+ * saved with, and are ignored when opened with another one, so a world saved in a window of
+ * another size is generated again instead of coming back with cliffs at every saved chunk's edge.
+ * All methods are synchronized, so chunks may be loaded on worker threads while the game thread
+ * saves others.
+ */
+public class WorldStore implements Closeable {
+    /** The number of consecutive chunks stored in one region file. */
+    public static final int CHUNKS_PER_REGION = 32;
+    private static final int REGION_MAGIC = 0x50455052; // "PEPR"
+    private static final int WORLD_MAGIC = 0x50455057; // "PEPW"
+    private static final int FORMAT_VERSION = 2;
+    // magic, version, chunk width and base height, then the offset and length of every chunk
+    private static final int REGION_HEADER_BYTES = 4 * Integer.BYTES
+            + CHUNKS_PER_REGION * 2 * Integer.BYTES;
+    private static final String WORLD_FILE_NAME = "world.dat";
+    // magic, version, seed and base height, then the avatar's position and energy
+    private static final int WORLD_FILE_BYTES = 3 * Integer.BYTES + 3 * Float.BYTES + Double.BYTES;
+    // the sway phase of a leaf is stored as one of this many steps of the sway period
+    private static final int PHASE_STEPS = 256;
+    // a region is compacted once its dead space is at least this large, and larger than its records
+    private static final long MIN_COMPACTED_DEAD_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int seed;
+    private final int chunkWidth;
+    private final float baseHeight;
+    private final Map<Integer, Region> regions = new HashMap<>();
+
+    /**
+     * Opens the saved world in a directory, creating the directory if needed. Region files are
+     * only opened once a chunk of theirs is loaded or saved.
+     * @param directory The directory holding the saved world, one per world seed.
+     * @param seed The seed of the world, a saved avatar of another seed is ignored.
+     * @param chunkWidth The width of a chunk in pixels, regions saved with another width are
+     *                   ignored.
+     * @param baseHeight The terrain's base height, which saved heights are relative to. A saved
+     *                   avatar or region of another base height is ignored.
+     * @throws IOException If the directory could not be created.
+     */
+    public WorldStore(Path directory, int seed, int chunkWidth, float baseHeight)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.seed = seed;
+        this.chunkWidth = chunkWidth;
+        this.baseHeight = baseHeight;
+    }
+
+    /**
+     * The state of the avatar when the world was saved.
+     */
+    public static final class AvatarState {
+        private final float x;
+        private final float y;
+        private final double energy;
+
+        /**
+         * Constructs an avatar state.
+         * @param x The x-coordinate of the avatar's top-left corner.
+         * @param y The y-coordinate of the avatar's top-left corner.
+         * @param energy The energy level of the avatar.
+         */
+        private AvatarState(float x, float y, double energy) {
+            this.x = x;
+            this.y = y;
+            this.energy = energy;
+        }
+
+        /**
+         * @return The x-coordinate of the avatar's top-left corner.
+         */
+        public float getX() {
+            return x;
+        }
+
+        /**
+         * @return The y-coordinate of the avatar's top-left corner.
+         */
+        public float getY() {
+            return y;
+        }
+
+        /**
+         * @return The energy level of the avatar.
+         */
+        public double getEnergy() {
+            return energy;
+        }
+    }
+
+    /**
+     * Saves the state of the avatar, replacing the previous one.
+     * @param x The x-coordinate of the avatar's top-left corner.
+     * @param y The y-coordinate of the avatar's top-left corner.
+     * @param energy The energy level of the avatar.
+     * @throws IOException If the state could not be written.
+     */
+    public synchronized void saveAvatar(float x, float y, double energy) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WORLD_FILE_BYTES);
+        buffer.putInt(WORLD_MAGIC).putInt(FORMAT_VERSION).putInt(seed).putFloat(baseHeight)
+                .putFloat(x).putFloat(y).putDouble(energy);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(WORLD_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the saved state of the avatar.
+     * @return The state of the avatar, or null if none was saved for this world's seed and base
+     * height.
+     * @throws IOException If the state could not be read.
+     */
+    public synchronized AvatarState loadAvatar() throws IOException {
+        Path path = directory.resolve(WORLD_FILE_NAME);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < WORLD_FILE_BYTES
+                || buffer.getInt() != WORLD_MAGIC || buffer.getInt() != FORMAT_VERSION
+                || buffer.getInt() != seed || buffer.getFloat() != baseHeight) {
+            return null;
+        }
+        return new AvatarState(buffer.getFloat(), buffer.getFloat(), buffer.getDouble());
+    }
+
+    /**
+     * Reads a saved chunk. May run on any thread.
+     * @param index The index of the chunk along the x-axis.
+     * @return The data of the chunk, with the respawn timers of its fruits, or null if the chunk
+     * was never saved or its record is corrupted.
+     * @throws IOException If the chunk's region could not be read, or its index points beyond
+     * the end of the file.
+     */
+    synchronized ChunkData loadChunk(int index) throws IOException {
+        Region region = regionOf(index, false);
+        if (region == null) {
+            return null;
+        }
+        int slot = Math.floorMod(index, CHUNKS_PER_REGION);
+        if (region.lengths[slot] == 0) {
+            return null;
+        }
+        ByteBuffer record = region.read(region.offsets[slot], region.lengths[slot]);
+        try {
+            return decodeChunk(index, record);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            // a record cut short or corrupted, such as by a crash, as if the chunk was never saved
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a chunk's record.
+     * @param index The index of the chunk along the x-axis.
+     * @param record The record, from its position to its limit.
+     * @return The data of the chunk, with the respawn timers of its fruits, or null if the record
+     * was saved with another chunk width.
+     */
+    private ChunkData decodeChunk(int index, ByteBuffer record) {
+        int columnCount = record.getInt();
+        if (columnCount != chunkWidth / Block.BLOCK_SIZE) {
+            return null;
+        }
+        float[] columnHeights = new float[columnCount];
+        record.asFloatBuffer().get(columnHeights);
+        record.position(record.position() + columnHeights.length * Float.BYTES);
+
+        int treeCount = record.getShort();
+        List<TreePlan> trees = new ArrayList<>(treeCount);
+        float[] fruitTimers = new float[0];
+        int fruitCount = 0;
+        for (int tree = 0; tree < treeCount; tree++) {
+            float x = record.getFloat();
+            float topY = record.getFloat();
+            float height = record.getFloat();
+            long leafMask = record.getLong();
+            float[] leafPhases = new float[Long.bitCount(leafMask)];
+            for (int leaf = 0; leaf < leafPhases.length; leaf++) {
+                leafPhases[leaf] = ((record.get() & 0xFF) + 0.5f) / PHASE_STEPS
+                        * LeafAnimator.SWAY_PERIOD;
+            }
+            int treeFruits = record.get();
+            float[] fruitOffsets = new float[treeFruits * 2];
+            if (fruitCount + treeFruits > fruitTimers.length) {
+                fruitTimers = Arrays.copyOf(fruitTimers,
+                        Math.max(fruitCount + treeFruits, fruitTimers.length * 2));
+            }
+            for (int fruit = 0; fruit < treeFruits; fruit++) {
+                fruitOffsets[fruit * 2] = record.getFloat();
+                fruitOffsets[fruit * 2 + 1] = record.getFloat();
+                fruitTimers[fruitCount++] = record.getFloat();
+            }
+            trees.add(TreePlan.fromDescription(x, topY, height, leafMask, leafPhases, fruitOffsets));
+        }
+        int minX = index * chunkWidth;
+        return new ChunkData(index, minX, minX + chunkWidth, columnHeights, trees,
+                Arrays.copyOf(fruitTimers, fruitCount));
+    }
+
+    /**
+     * Saves a chunk, replacing its previous record. Runs on the game thread.
+     * @param data The data the chunk was built from.
+     * @param fruitTimers The time in seconds until every fruit of the chunk respawns, in the
+     *                    order of the trees and their fruits, 0 for uneaten fruits.
+     * @throws IOException If the chunk's region could not be written.
+     */
+    synchronized void saveChunk(ChunkData data, float[] fruitTimers) throws IOException {
+        float[] columnHeights = data.getColumnHeights();
+        int length = Integer.BYTES + columnHeights.length * Float.BYTES + Short.BYTES;
+        for (TreePlan tree : data.getTrees()) {
+            length += 3 * Float.BYTES + Long.BYTES + tree.getLeafCount() + 1
+                    + tree.getFruitCount() * 3 * Float.BYTES;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(columnHeights.length);
+        record.asFloatBuffer().put(columnHeights);
+        record.position(record.position() + columnHeights.length * Float.BYTES);
+        record.putShort((short) data.getTrees().size());
+        int fruitCount = 0;
+        for (TreePlan tree : data.getTrees()) {
+            record.putFloat(tree.getX()).putFloat(tree.getTopY()).putFloat(tree.getHeight());
+            record.putLong(tree.getLeafMask());
+            for (int leaf = 0; leaf < tree.getLeafCount(); leaf++) {
+                int step = (int) (tree.getLeafPhase(leaf) / LeafAnimator.SWAY_PERIOD * PHASE_STEPS);
+                record.put((byte) Math.max(0, Math.min(PHASE_STEPS - 1, step)));
+            }
+            record.put((byte) tree.getFruitCount());
+            for (int fruit = 0; fruit < tree.getFruitCount(); fruit++) {
+                record.putFloat(tree.getFruitOffsetX(fruit)).putFloat(tree.getFruitOffsetY(fruit));
+                record.putFloat(fruitCount < fruitTimers.length ? fruitTimers[fruitCount] : 0);
+                fruitCount++;
+            }
+        }
+        record.flip();
+        regionOf(data.getIndex(), true).write(Math.floorMod(data.getIndex(), CHUNKS_PER_REGION),
+                record);
+    }
+
+    /**
+     * Forces every chunk saved so far to the disk, then points the regions' indices to them,
+     * compacting the regions holding too much dead space.
+     * @throws IOException If a region could not be written.
+     */
+    public synchronized void flush() throws IOException {
+        for (Region region : regions.values()) {
+            region.commit();
+        }
+    }
+
+    /**
+     * Flushes and closes every open region file.
+     * @throws IOException If a region could not be written or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            for (Region region : regions.values()) {
+                region.channel.close();
+            }
+            regions.clear();
+        }
+    }
+
+    /**
+     * Returns the open region holding a chunk, opening its file if needed.
+     * @param chunkIndex The index of the chunk.
+     * @param create Whether to create the region file if it does not exist.
+     * @return The region, or null if it does not exist and was not created, or if it was saved
+     * with another chunk width or base height.
+     * @throws IOException If the region file could not be opened.
+     */
+    private Region regionOf(int chunkIndex, boolean create) throws IOException {
+        int regionIndex = Math.floorDiv(chunkIndex, CHUNKS_PER_REGION);
+        Region region = regions.get(regionIndex);
+        if (region != null) {
+            return region;
+        }
+        Path path = directory.resolve("r." + regionIndex + ".pepr");
+        if (!create && !Files.exists(path)) {
+            return null;
+        }
+        region = new Region(path, FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        if (!region.readHeader(chunkWidth, baseHeight)) {
+            region.channel.close();
+            if (!create) {
+                return null;
+            }
+            // saved with another chunk width or base height, its chunks can't be reused
+            region = new Region(path, FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+            region.writeHeader(chunkWidth, baseHeight);
+        }
+        regions.put(regionIndex, region);
+        return region;
+    }
+
+    /**
+     * An open region file, with its index of chunk records kept in memory.
+     */
+    private static final class Region {
+        private final Path path;
+        private final int[] offsets = new int[CHUNKS_PER_REGION];
+        private final int[] lengths = new int[CHUNKS_PER_REGION];
+        private FileChannel channel;
+        // the file mapped in memory, or null until the next read maps it again
+        private MappedByteBuffer mapped;
+        // the first bytes of the header, kept to write them again when compacting
+        private ByteBuffer headerStart;
+        // whether records were appended since the index on the disk was last written
+        private boolean uncommitted;
+        // the bytes of superseded records, and of records appended but never committed
+        private long deadBytes;
+
+        /**
+         * Constructs a region.
+         * @param path The path of the region file.
+         * @param channel The channel of the region file.
+         */
+        private Region(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the index of the region.
+         * @param chunkWidth The chunk width the region must have been saved with.
+         * @param baseHeight The base height the region must have been saved with.
+         * @return False if the file is empty or was not saved with this format, chunk width and
+         * base height.
+         * @throws IOException If the file could not be read.
+         */
+        private boolean readHeader(int chunkWidth, float baseHeight) throws IOException {
+            if (channel.size() < REGION_HEADER_BYTES) {
+                return false;
+            }
+            ByteBuffer header = read(0, REGION_HEADER_BYTES);
+            if (header.getInt() != REGION_MAGIC || header.getInt() != FORMAT_VERSION
+                    || header.getInt() != chunkWidth || header.getFloat() != baseHeight) {
+                return false;
+            }
+            headerStart = headerStart(chunkWidth, baseHeight);
+            deadBytes = channel.size() - REGION_HEADER_BYTES;
+            for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                offsets[slot] = header.getInt();
+                lengths[slot] = header.getInt();
+                deadBytes -= lengths[slot];
+            }
+            return true;
+        }
+
+        /**
+         * Writes the header of an empty region.
+         * @param chunkWidth The chunk width the region is saved with.
+         * @param baseHeight The base height the region is saved with.
+         * @throws IOException If the file could not be written.
+         */
+        private void writeHeader(int chunkWidth, float baseHeight) throws IOException {
+            headerStart = headerStart(chunkWidth, baseHeight);
+            writeFully(channel, header(offsets), 0);
+            mapped = null;
+        }
+
+        /**
+         * Returns a view of part of the mapped file, mapping the file again if it grew since it
+         * was last mapped.
+         * @param offset The offset of the part in the file.
+         * @param length The length of the part.
+         * @return A buffer positioned at the part's start and limited to its end.
+         * @throws IOException If the file could not be mapped, or the part is not within the file.
+         */
+        private ByteBuffer read(int offset, int length) throws IOException {
+            if (offset < 0 || length < 0 || (long) offset + length > channel.size()) {
+                throw new IOException("Record at " + offset + " of " + length
+                        + " bytes is beyond the end of " + path.getFileName());
+            }
+            if (mapped == null || mapped.capacity() < offset + length) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            ByteBuffer view = mapped.duplicate();
+            view.limit(offset + length).position(offset);
+            return view;
+        }
+
+        /**
+         * Appends a chunk's record to the file. The index in memory points to it right away, while
+         * the index on the disk only does once the region is committed.
+         * @param slot The slot of the chunk in the region.
+         * @param record The record, from its position to its limit.
+         * @throws IOException If the file could not be written.
+         */
+        private void write(int slot, ByteBuffer record) throws IOException {
+            int length = record.remaining();
+            int offset = (int) Math.max(channel.size(), REGION_HEADER_BYTES);
+            writeFully(channel, record, offset);
+            deadBytes += lengths[slot];
+            offsets[slot] = offset;
+            lengths[slot] = length;
+            uncommitted = true;
+        }
+
+        /**
+         * Forces the appended records to the disk, then writes the index pointing to them, and
+         * compacts the region if its dead space outgrew its records.
+         * @throws IOException If the file could not be written.
+         */
+        private void commit() throws IOException {
+            if (!uncommitted) {
+                return;
+            }
+            channel.force(false);
+            writeFully(channel, header(offsets), 0);
+            channel.force(false);
+            uncommitted = false;
+            long liveBytes = channel.size() - REGION_HEADER_BYTES - deadBytes;
+            if (deadBytes >= MIN_COMPACTED_DEAD_BYTES && deadBytes > liveBytes) {
+                compact();
+            }
+        }
+
+        /**
+         * Rewrites the region with its live records only, one after the other, into a new file
+         * that atomically replaces the region's file once it is on the disk.
+         * @throws IOException If the new file could not be written or moved.
+         */
+        private void compact() throws IOException {
+            Path compactedPath = path.resolveSibling(path.getFileName() + ".tmp");
+            int[] compactedOffsets = new int[CHUNKS_PER_REGION];
+            try (FileChannel compacted = FileChannel.open(compactedPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int offset = REGION_HEADER_BYTES;
+                for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                    if (lengths[slot] != 0) {
+                        writeFully(compacted, read(offsets[slot], lengths[slot]), offset);
+                        compactedOffsets[slot] = offset;
+                        offset += lengths[slot];
+                    }
+                }
+                writeFully(compacted, header(compactedOffsets), 0);
+                compacted.force(false);
+            }
+            channel.close();
+            mapped = null;
+            Files.move(compactedPath, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            System.arraycopy(compactedOffsets, 0, offsets, 0, CHUNKS_PER_REGION);
+            deadBytes = 0;
+        }
+
+        /**
+         * Encodes the whole header of the region.
+         * @param recordOffsets The offset of every chunk's record, along with the region's lengths.
+         * @return The header, ready to be written.
+         */
+        private ByteBuffer header(int[] recordOffsets) {
+            ByteBuffer header = ByteBuffer.allocate(REGION_HEADER_BYTES);
+            header.put(headerStart.duplicate());
+            for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                header.putInt(recordOffsets[slot]).putInt(lengths[slot]);
+            }
+            header.flip();
+            return header;
+        }
+
+        /**
+         * Encodes the part of the header preceding the index.
+         * @param chunkWidth The chunk width the region is saved with.
+         * @param baseHeight The base height the region is saved with.
+         * @return The magic, format version, chunk width and base height of the region.
+         */
+        private static ByteBuffer headerStart(int chunkWidth, float baseHeight) {
+            ByteBuffer headerStart = ByteBuffer.allocate(4 * Integer.BYTES);
+            headerStart.putInt(REGION_MAGIC).putInt(FORMAT_VERSION).putInt(chunkWidth)
+                    .putFloat(baseHeight);
+            headerStart.flip();
+            return headerStart;
+        }
+
+        /**
+         * Writes a whole buffer at a position of a file.
+         * @param channel The channel of the file.
+         * @param buffer The buffer to write, from its position to its limit.
+         * @param position The position in the file.
+         * @throws IOException If the file could not be written.
+         */
+        private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+                throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+}
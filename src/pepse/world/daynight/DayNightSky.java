@@ -0,0 +1,188 @@
+package pepse.world.daynight;
+
+import danogl.GameObject;
+import danogl.components.CoordinateSpace;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+
+/**
+ * The sky behind the world, with its day-night cycle, as a single game object drawn by a single
+ * renderable: the sky's vertical gradient, darkened at night and tinted around sunrise and sunset,
+ * then the sun and its halo.
+ * The colors of the whole cycle are computed once, into a lookup table holding the gradient of
+ * every step of the cycle, so drawing a frame picks a row of the table, and the sun's position is
+ * calculated from the time of the cycle. Nothing else runs per frame: no transition, no component
+ * and no darkening rectangle drawn over the whole window.
+ */
+public class DayNightSky extends GameObject {
+    private static final Color BASIC_SKY_COLOR = Color.decode("#80C6E5");
+    private static final Color DUSK_COLOR = new Color(250, 150, 90);
+    private static final Color SUN_COLOR = Color.YELLOW;
+    private static final Color HALO_COLOR = new Color(255, 255, 0, 20);
+    private static final float MIDNIGHT_DARKNESS = 0.5f;
+    private static final int SUN_SIZE = 80;
+    private static final int HALO_SIZE = 120;
+    // the zenith is this much darker than the basic sky color, and the horizon this much lighter
+    private static final float ZENITH_SHADE = 0.15f;
+    private static final float HORIZON_TINT = 0.2f;
+    // how far below and above the horizon (as a fraction of the sun's path radius) dusk colors show
+    private static final float DUSK_ELEVATION = 0.35f;
+    private static final int CYCLE_STEPS = 180;
+    private static final int GRADIENT_BANDS = 48;
+
+    private final Vector2 windowDimensions;
+    private final float cycleLength;
+    // the center of the sun's circular path, and the sun's offset from it at the cycle's start
+    private final Vector2 pathCenter;
+    private final Vector2 initialSunOffset;
+    // the color of every band of the gradient, for every step of the cycle, one step after the other
+    private final Color[] colors = new Color[CYCLE_STEPS * GRADIENT_BANDS];
+    private float time;
+
+    /**
+     * Constructs the sky, covering the whole window in camera coordinates. It should be added
+     * to the background layer before any other background object.
+     * @param windowDimensions The dimensions of the window.
+     * @param cycleLength The duration of a whole day-night cycle, in seconds.
+     */
+    public DayNightSky(Vector2 windowDimensions, float cycleLength) {
+        super(Vector2.ZERO, windowDimensions, null);
+        this.windowDimensions = windowDimensions;
+        this.cycleLength = cycleLength;
+        this.pathCenter = new Vector2(windowDimensions.x() / 2, windowDimensions.y() * 2 / 3);
+        this.initialSunOffset = new Vector2(windowDimensions.x() / 2 - SUN_SIZE,
+                windowDimensions.y() / 2 - SUN_SIZE).subtract(pathCenter);
+        setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        setTag("sky");
+        fillColors();
+        renderer().setRenderable(new SkyRenderable());
+    }
+
+    /**
+     * Advances the time of the cycle.
+     * @param deltaTime The time elapsed since the last update, in seconds.
+     */
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        time = (time + deltaTime) % cycleLength;
+    }
+
+    /**
+     * @return The time within the current cycle, in seconds.
+     */
+    public float getTime() {
+        return time;
+    }
+
+    /**
+     * Calculates the sun's offset from the center of its path at some point of the cycle. The
+     * sun goes around the circle once per cycle, starting above the horizon.
+     * @param cycleFraction The point of the cycle, from 0 to 1.
+     * @return The sun's offset from the path's center, in window coordinates.
+     */
+    private Vector2 sunOffsetAt(float cycleFraction) {
+        double angle = Math.toRadians(cycleFraction * 360);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return new Vector2((float) (initialSunOffset.x() * cos - initialSunOffset.y() * sin),
+                (float) (initialSunOffset.x() * sin + initialSunOffset.y() * cos));
+    }
+
+    /**
+     * Computes the lookup table of the whole cycle: for every step, the sky's gradient, tinted
+     * toward dusk colors near the horizon while the sun is close to it, and darkened as the night
+     * deepens, as much as the black night overlay used to.
+     */
+    private void fillColors() {
+        float pathRadius = initialSunOffset.magnitude();
+        for (int step = 0; step < CYCLE_STEPS; step++) {
+            float cycleFraction = (float) step / CYCLE_STEPS;
+            // the sun's height above the horizon, from -1 (lowest) to 1 (highest)
+            float elevation = -sunOffsetAt(cycleFraction).y() / pathRadius;
+            float dusk = Math.max(0, 1 - Math.abs(elevation) / DUSK_ELEVATION);
+            float brightness = 1 - MIDNIGHT_DARKNESS * darknessAt(cycleFraction);
+            for (int band = 0; band < GRADIENT_BANDS; band++) {
+                // 0 at the top of the window, 1 at the bottom
+                float height = (band + 0.5f) / GRADIENT_BANDS;
+                Color color = blend(blend(BASIC_SKY_COLOR, Color.BLACK, ZENITH_SHADE * (1 - height)),
+                        Color.WHITE, HORIZON_TINT * height);
+                color = blend(color, DUSK_COLOR, dusk * height * height);
+                colors[step * GRADIENT_BANDS + band] = blend(color, Color.BLACK, 1 - brightness);
+            }
+        }
+    }
+
+    /**
+     * Calculates how dark the night is at some point of the cycle, rising smoothly from none at
+     * the cycle's start to full at its middle, and back.
+     * @param cycleFraction The point of the cycle, from 0 to 1.
+     * @return The darkness, from 0 (day) to 1 (midnight).
+     */
+    private static float darknessAt(float cycleFraction) {
+        float t = cycleFraction < 0.5f ? cycleFraction * 2 : 2 - cycleFraction * 2;
+        return t * t * (3 - 2 * t);
+    }
+
+    /**
+     * Blends two colors.
+     * @param from The first color.
+     * @param to The second color.
+     * @param amount How much of the second color to take, from 0 to 1.
+     * @return The blended color.
+     */
+    private static Color blend(Color from, Color to, float amount) {
+        return new Color(
+                Math.round(from.getRed() + (to.getRed() - from.getRed()) * amount),
+                Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * amount),
+                Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * amount));
+    }
+
+    /**
+     * Draws the sky's gradient for the current time of the cycle, then the sun and its halo.
+     */
+    private class SkyRenderable implements Renderable {
+        /**
+         * Draws the sky.
+         * @param g The graphics to draw with.
+         * @param topLeftCorner The top-left corner of the sky on the screen.
+         * @param dimensions The dimensions of the sky on the screen.
+         * @param degreesCounterClockwise Unused, the sky is never rotated.
+         * @param isFlippedHorizontally Unused, the sky is never flipped.
+         * @param isFlippedVertically Unused, the sky is never flipped.
+         * @param opaqueness Unused, the sky is always opaque.
+         */
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            float cycleFraction = time / cycleLength;
+            int step = Math.min(CYCLE_STEPS - 1, (int) (cycleFraction * CYCLE_STEPS));
+            int left = Math.round(topLeftCorner.x());
+            int width = Math.round(dimensions.x());
+            for (int band = 0; band < GRADIENT_BANDS; band++) {
+                int top = Math.round(topLeftCorner.y() + dimensions.y() * band / GRADIENT_BANDS);
+                int bottom = Math.round(topLeftCorner.y()
+                        + dimensions.y() * (band + 1) / GRADIENT_BANDS);
+                g.setColor(colors[step * GRADIENT_BANDS + band]);
+                g.fillRect(left, top, width, bottom - top);
+            }
+
+            float scaleX = dimensions.x() / windowDimensions.x();
+            float scaleY = dimensions.y() / windowDimensions.y();
+            Vector2 sunCenter = pathCenter.add(sunOffsetAt(cycleFraction));
+            float centerX = topLeftCorner.x() + sunCenter.x() * scaleX;
+            float centerY = topLeftCorner.y() + sunCenter.y() * scaleY;
+            g.setColor(SUN_COLOR);
+            g.fillOval(Math.round(centerX - SUN_SIZE * scaleX / 2),
+                    Math.round(centerY - SUN_SIZE * scaleY / 2),
+                    Math.round(SUN_SIZE * scaleX), Math.round(SUN_SIZE * scaleY));
+            g.setColor(HALO_COLOR);
+            g.fillOval(Math.round(centerX - HALO_SIZE * scaleX / 2),
+                    Math.round(centerY - HALO_SIZE * scaleY / 2),
+                    Math.round(HALO_SIZE * scaleX), Math.round(HALO_SIZE * scaleY));
+        }
+    }
+}
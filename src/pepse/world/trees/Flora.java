@@ -2,70 +2,180 @@ package pepse.world.trees;
 
 import danogl.GameObject;
 import danogl.util.Vector2;
+import pepse.util.FastRandom;
+import pepse.util.FrameScheduler;
+import pepse.util.ObjectPool;
 import pepse.world.Avatar;
 import pepse.world.Block;
+import pepse.world.GroundHeightProvider;
+import pepse.world.JumpAvatarObserver;
 
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.function.IntFunction;
 
 
 /**
  * Responsible for generating the flora within the game, including trees with their trunks,
  * leaves, and fruits. It doesn't directly create terrain objects but relies on either callbacks
  * or a pre-defined list of tree positions to place flora appropriately within the game world.
+ * All randomness is derived from the world seed and the column being generated, so the same
+ * seed always grows the same forest, and a range generated again looks exactly the same.
+ * Trees are first planned as plain data, which may happen on worker threads, and then created
+ * as game objects on the game thread.
  */
 public class Flora{
-    private final Random random = new Random();
+    // salt deriving the jump color sequence from the world seed, apart from the column seeds
+    private static final long JUMP_COLOR_SALT = 0x6A09E667F3BCC909L;
+    private static final int TRUNK_POOL_CAPACITY = 256;
+    private static final int LEAVES_POOL_CAPACITY = 4096;
+    private static final int FRUITS_POOL_CAPACITY = 1024;
+    private final long worldSeed;
     private final Avatar avatar;
+    private final FrameScheduler fruitRespawnScheduler;
+    private final LeafAnimator leafAnimator;
+    // picks the colors trunks and fruits change to when the avatar jumps
+    private final FastRandom jumpColorRandom;
+    // flora of unloaded chunks, reused by the next trees created on the game thread
+    private final ObjectPool<Trunk> trunkPool = new ObjectPool<>(TRUNK_POOL_CAPACITY);
+    private final ObjectPool<Leaves> leavesPool = new ObjectPool<>(LEAVES_POOL_CAPACITY);
+    private final ObjectPool<Fruits> fruitsPool = new ObjectPool<>(FRUITS_POOL_CAPACITY);
     //callback
-    private IntFunction<Integer> groundHeightProvider;
+    private GroundHeightProvider groundHeightProvider;
 
     /**
      * Initializes the flora generator with a reference to the avatar.
      * @param avatar The game's avatar, used for interactions with the flora.
+     * @param fruitRespawnScheduler The scheduler bringing fruits back after they were eaten.
+     * @param leafAnimator The animator swaying all the leaves.
+     * @param worldSeed The seed of the world, all flora randomness is derived from it.
      */
-    public Flora(Avatar avatar){
+    public Flora(Avatar avatar, FrameScheduler fruitRespawnScheduler, LeafAnimator leafAnimator,
+                 long worldSeed){
         this.avatar = avatar;
+        this.worldSeed = worldSeed;
+        this.jumpColorRandom = new FastRandom(FastRandom.hash(worldSeed ^ JUMP_COLOR_SALT, 0));
+        this.fruitRespawnScheduler = fruitRespawnScheduler;
+        this.leafAnimator = leafAnimator;
     }
 
     /**
      * Sets the provider that determines ground height at any given x-coordinate.
-     * @param provider A function that returns the ground height given an x-coordinate.
+     * @param provider Provides the ground height given an x-coordinate, such as the terrain.
      */
-    public void setGroundHeightProvider(IntFunction<Integer> provider) {
+    public void setGroundHeightProvider(GroundHeightProvider provider) {
         this.groundHeightProvider = provider;
     }
 
     /**
      * Generates trees within a specified range along the x-axis.
-     * @param minX The minimum x-coordinate to start generating trees from.
+     * The ground heights of the whole range are fetched from the provider in one batch.
+     * @param minX The minimum x-coordinate to start generating trees from, aligned to the block grid.
      * @param maxX The maximum x-coordinate to stop generating trees at.
      * @return A list of all game objects (trees, leaves, fruits) created within the range.
      */
     public List<GameObject> createInRange(int minX, int maxX) {
-        List<GameObject> trees = new ArrayList<>();
-        for (int i = minX; i < maxX; i += Block.BLOCK_SIZE) {
-            if (random.nextDouble() < 0.1) {
-                int randomHeight = random.nextInt(100) + 100;
-                int groundHeight = groundHeightProvider.apply(i);
-                Vector2 treePosition = new Vector2(i, groundHeight - randomHeight);
+        return createFromPlans(planInRange(minX, maxX));
+    }
 
-                //create the trunk
-                Trunk trunk = new Trunk(treePosition, randomHeight);
-                trees.add(trunk);
-                avatar.registerObserver(trunk);
-                //create the moving leaves
-                List<Leaves> leaves = Leaves.createLeavesCluster(trunk.getTopLeftCorner(),avatar);
-                trees.addAll((leaves));
-                //create the fruits
-                List<Fruits> fruits = Fruits.createFruits(trunk.getTopLeftCorner(), avatar);
-                trees.addAll(fruits);
+    /**
+     * Lays out the trees within a specified range along the x-axis, without creating any game
+     * object. Safe to call from any thread, as long as the ground height provider is, so trees
+     * can be planned ahead on worker threads.
+     * @param minX The minimum x-coordinate to start planning trees from, aligned to the block grid.
+     * @param maxX The maximum x-coordinate to stop planning trees at.
+     * @return The plans of the trees within the range, from left to right.
+     */
+    public List<TreePlan> planInRange(int minX, int maxX) {
+        List<TreePlan> plans = new ArrayList<>();
+        float[] groundHeights = new float[Math.max(0, (maxX - minX + Block.BLOCK_SIZE - 1) / Block.BLOCK_SIZE)];
+        groundHeightProvider.groundHeightsAt(minX, groundHeights);
+        // reseeded for every column, so each column's flora depends only on the seed and the column
+        FastRandom columnRandom = new FastRandom(0);
+        for (int column = 0; column < groundHeights.length; column++) {
+            int i = minX + column * Block.BLOCK_SIZE;
+            columnRandom.setSeed(FastRandom.hash(worldSeed, Math.floorDiv(i, Block.BLOCK_SIZE)));
+            if (columnRandom.nextDouble() < 0.1) {
+                int randomHeight = columnRandom.nextInt(100) + 100;
+                float topY = groundHeights[column] - randomHeight;
+                float[] leafLayout = Leaves.planCluster(i, topY, columnRandom);
+                float[] fruitLayout = Fruits.planFruits(i, topY, columnRandom);
+                plans.add(new TreePlan(i, topY, randomHeight, leafLayout, fruitLayout));
             }
         }
+        return plans;
+    }
+
+    /**
+     * Creates the game objects of planned trees, and registers them with the avatar and the leaf
+     * animator. Runs on the game thread.
+     * @param plans The plans of the trees, as returned by {@link #planInRange}.
+     * @return A list of all game objects (trees, leaves, fruits) of the trees.
+     */
+    public List<GameObject> createFromPlans(List<TreePlan> plans) {
+        List<GameObject> trees = new ArrayList<>();
+        for (TreePlan plan : plans) {
+            //create the trunk, reusing a released one if possible
+            Vector2 treePosition = new Vector2(plan.getX(), plan.getTopY());
+            Trunk trunk = trunkPool.acquire();
+            if (trunk == null) {
+                trunk = new Trunk(treePosition, plan.getHeight(), jumpColorRandom);
+            } else {
+                trunk.reset(treePosition, plan.getHeight());
+            }
+            trees.add(trunk);
+            avatar.registerObserver(trunk, treePosition.x());
+            //create the moving leaves
+            trees.addAll(Leaves.createFromLayout(plan.getLeafLayout(), avatar, leafAnimator,
+                    leavesPool));
+            //create the fruits
+            trees.addAll(Fruits.createFromLayout(plan.getFruitLayout(), avatar,
+                    fruitRespawnScheduler, jumpColorRandom, fruitsPool));
+        }
         return trees;
     }
 
+    /**
+     * Unregisters flora objects from the avatar's jump notifications and the leaf animator, once
+     * they are removed from the game, and returns them to their pools so the next trees created
+     * reuse them.
+     * @param floraObjects The flora objects created by {@link #createInRange}.
+     */
+    public void release(List<? extends GameObject> floraObjects) {
+        for (GameObject floraObject : floraObjects) {
+            if (floraObject instanceof JumpAvatarObserver) {
+                avatar.unregisterObserver((JumpAvatarObserver) floraObject);
+            }
+            if (floraObject instanceof Leaves) {
+                leafAnimator.remove((Leaves) floraObject);
+                leavesPool.release((Leaves) floraObject);
+            } else if (floraObject instanceof Trunk) {
+                trunkPool.release((Trunk) floraObject);
+            } else if (floraObject instanceof Fruits) {
+                fruitsPool.release((Fruits) floraObject);
+            }
+        }
+    }
+
+    /**
+     * @return The pool of trunks, exposing its size and hit rate.
+     */
+    public ObjectPool<Trunk> getTrunkPool() {
+        return trunkPool;
+    }
+
+    /**
+     * @return The pool of leaves, exposing its size and hit rate.
+     */
+    public ObjectPool<Leaves> getLeavesPool() {
+        return leavesPool;
+    }
+
+    /**
+     * @return The pool of fruits, exposing its size and hit rate.
+     */
+    public ObjectPool<Fruits> getFruitsPool() {
+        return fruitsPool;
+    }
+
 }
@@ -8,6 +8,9 @@ import danogl.util.Vector2;
 import danogl.collisions.Collision;
 import danogl.gui.rendering.OvalRenderable;
 
+import pepse.util.FastRandom;
+import pepse.util.FrameScheduler;
+import pepse.util.ObjectPool;
 import pepse.world.Avatar;
 import pepse.world.JumpAvatarObserver;
 
@@ -19,16 +22,33 @@ import pepse.world.JumpAvatarObserver;
 public class Fruits extends GameObject implements JumpAvatarObserver {
     private static final float FRUIT_SIZE = 15;
     private static final Color FRUIT_DEF_COLOR = Color.RED;
+    private static final float RESPAWN_DELAY = 30;
+    private final FrameScheduler respawnScheduler;
+    // one task for every respawn of the fruit, so eating it allocates nothing
+    private final Runnable respawnTask = this::respawnIfDue;
     private boolean canBeEaten;
+    // the scheduler's time at which the fruit respawns, while it is eaten; respawns scheduled
+    // before the fruit was reused or eaten again run earlier, and are ignored
+    private double respawnTime;
+    // changes every time the fruit is eaten or respawns, so saves can tell it changed
+    private int stateVersion;
     private static final Color[] FRUIT_COLORS =
             {Color.ORANGE, Color.PINK, Color.YELLOW, Color.BLUE,Color.RED, Color.MAGENTA};
+    // one shared renderable per color, so changing color on a jump allocates nothing
+    private static final OvalRenderable[] FRUIT_RENDERABLES = createRenderables(FRUIT_COLORS);
+    private static final OvalRenderable FRUIT_DEF_RENDERABLE = new OvalRenderable(FRUIT_DEF_COLOR);
+    private final FastRandom colorRandom;
 
     /**
      * Constructor for creating a fruit object.
      * @param topLeftCorner The top-left position where the fruit will be placed.
+     * @param respawnScheduler The scheduler bringing the fruit back after it was eaten.
+     * @param colorRandom The random generator picking the fruit's color on jumps, shared by all flora.
      */
-    public Fruits(Vector2 topLeftCorner) {
-        super(topLeftCorner, new Vector2(FRUIT_SIZE, FRUIT_SIZE), new OvalRenderable(FRUIT_DEF_COLOR));
+    public Fruits(Vector2 topLeftCorner, FrameScheduler respawnScheduler, FastRandom colorRandom) {
+        super(topLeftCorner, new Vector2(FRUIT_SIZE, FRUIT_SIZE), FRUIT_DEF_RENDERABLE);
+        this.respawnScheduler = respawnScheduler;
+        this.colorRandom = colorRandom;
         canBeEaten=true;
     }
 
@@ -36,23 +56,65 @@ public class Fruits extends GameObject implements JumpAvatarObserver {
      * Static method to generate a list of fruit objects around the top position of a tree.
      * @param treeTopPos The position near which fruits are to be generated.
      * @param avatar The avatar object, to register as an observer for the fruits.
+     * @param respawnScheduler The scheduler bringing fruits back after they were eaten.
+     * @param colorRandom The random generator picking fruit colors on jumps, shared by all flora.
+     * @param random The random generator placing the fruits, seeded for the tree's column.
      * @return A list of created Fruits objects.
      */
-    public static List<Fruits> createFruits(Vector2 treeTopPos, Avatar avatar) {
-        List<Fruits> fruits = new ArrayList<>();
-        Random random = new Random();
+    public static List<Fruits> createFruits(Vector2 treeTopPos, Avatar avatar,
+                                            FrameScheduler respawnScheduler, FastRandom colorRandom,
+                                            FastRandom random) {
+        return createFromLayout(planFruits(treeTopPos.x(), treeTopPos.y(), random), avatar,
+                respawnScheduler, colorRandom, null);
+    }
+
+    /**
+     * Lays out the fruits of a tree around its top position, without creating them.
+     * Safe to call from any thread, given its own random generator.
+     * @param treeTopX The x-coordinate near which fruits are to be laid out.
+     * @param treeTopY The y-coordinate near which fruits are to be laid out.
+     * @param random The random generator placing the fruits, seeded for the tree's column.
+     * @return The x and y of every fruit, one pair after the other.
+     */
+    static float[] planFruits(float treeTopX, float treeTopY, FastRandom random) {
         int numberOfFruits = 3 + random.nextInt(2); // create 3 or 4 fruits
+        float[] layout = new float[numberOfFruits * 2];
         for (int i = 0; i < numberOfFruits; i++) {
             float xOffset = random.nextFloat() * FRUIT_SIZE * 5 - FRUIT_SIZE * 3.5f;
             float yOffset = random.nextFloat() * FRUIT_SIZE * 5 - FRUIT_SIZE * 3.5f;
-                Vector2 fruitPosition = treeTopPos.add(new Vector2(xOffset, yOffset));
-                Fruits fruit = new Fruits(fruitPosition);
-                fruits.add(fruit);
-                avatar.registerObserver(fruit);
+            layout[i * 2] = treeTopX + xOffset;
+            layout[i * 2 + 1] = treeTopY + yOffset;
         }
-        return fruits;
+        return layout;
     }
 
+    /**
+     * Creates the fruits laid out by {@link #planFruits}. Runs on the game thread.
+     * @param layout The x and y of every fruit, one pair after the other.
+     * @param avatar The avatar object, to register as an observer for the fruits.
+     * @param respawnScheduler The scheduler bringing fruits back after they were eaten.
+     * @param colorRandom The random generator picking fruit colors on jumps, shared by all flora.
+     * @param pool The pool of fruits sharing the same scheduler and color generator to reuse, or
+     *             null to always create new fruits.
+     * @return The created fruits.
+     */
+    static List<Fruits> createFromLayout(float[] layout, Avatar avatar,
+                                         FrameScheduler respawnScheduler, FastRandom colorRandom,
+                                         ObjectPool<Fruits> pool) {
+        List<Fruits> fruits = new ArrayList<>(layout.length / 2);
+        for (int i = 0; i < layout.length; i += 2) {
+            Vector2 fruitPosition = new Vector2(layout[i], layout[i + 1]);
+            Fruits fruit = pool == null ? null : pool.acquire();
+            if (fruit == null) {
+                fruit = new Fruits(fruitPosition, respawnScheduler, colorRandom);
+            } else {
+                fruit.reset(fruitPosition);
+            }
+            fruits.add(fruit);
+            avatar.registerObserver(fruit, fruitPosition.x());
+        }
+        return fruits;
+    }
 
     /**
      * Handles the logic when an avatar collides with a fruit, allowing the Avatar to "eat" the fruit and
@@ -72,24 +134,83 @@ public class Fruits extends GameObject implements JumpAvatarObserver {
 
     /**
      * Enables the fruit to be eaten by the Avatar, adding energy and making the fruit temporarily invisible.
+     * The fruit comes back once the respawn delay has passed in game time.
      * @param other The GameObject that "eats" the fruit, expected to be the Avatar.
      */
     private void enableFruitEaten(GameObject other){
         if(other.getTag().equals("Avatar")){
             Avatar avatar = (Avatar) other; // downcasting safetly!
             avatar.addEnergy(10);
-            Fruits currentFruit = this;
-
-            currentFruit.renderer().setOpaqueness(0);
-            new Timer().schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    currentFruit.renderer().setOpaqueness(1);
-                    canBeEaten=true;
-                }
-            }, 30000);
+
+            markEaten(RESPAWN_DELAY);
+        }
+
+    }
+
+    /**
+     * Makes an eaten fruit visible and edible again once its respawn time has come. A respawn
+     * scheduled before the fruit was reused, or before it was last eaten, finds the fruit edible
+     * or its respawn time still ahead, and does nothing. Runs on the game thread.
+     */
+    private void respawnIfDue() {
+        if (canBeEaten || respawnScheduler.getTime() < respawnTime) {
+            return;
+        }
+        renderer().setOpaqueness(1);
+        canBeEaten=true;
+        stateVersion++;
+    }
+
+    /**
+     * Makes the fruit invisible and inedible until it respawns.
+     * @param respawnDelay The game time in seconds until the fruit respawns.
+     */
+    private void markEaten(float respawnDelay) {
+        renderer().setOpaqueness(0);
+        canBeEaten=false;
+        stateVersion++;
+        // the scheduler runs the task at this very time, computed the same way
+        respawnTime = respawnScheduler.getTime() + respawnDelay;
+        respawnScheduler.schedule(respawnDelay, respawnTask);
+    }
+
+    /**
+     * @return The game time in seconds until the fruit respawns, or 0 if it can be eaten.
+     */
+    public float getRemainingRespawnTime() {
+        return canBeEaten ? 0 : (float) Math.max(0, respawnTime - respawnScheduler.getTime());
+    }
+
+    /**
+     * Restores the state of a fruit that was eaten before the world was saved.
+     * @param remainingRespawnTime The game time in seconds until the fruit respawns, the fruit
+     *                             is left untouched if it is not positive.
+     */
+    public void restoreEaten(float remainingRespawnTime) {
+        if (remainingRespawnTime > 0 && canBeEaten) {
+            markEaten(remainingRespawnTime);
         }
+    }
+
+    /**
+     * @return A number changing every time the fruit is eaten or respawns.
+     */
+    public int getStateVersion() {
+        return stateVersion;
+    }
 
+    /**
+     * Moves a fruit that is no longer in the game to a new tree, uneaten and in its default
+     * color, so it can be reused instead of creating a new fruit. A respawn still scheduled
+     * for its previous tree no longer affects it.
+     * @param topLeftCorner The new position of the fruit.
+     */
+    void reset(Vector2 topLeftCorner) {
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(FRUIT_DEF_RENDERABLE);
+        renderer().setOpaqueness(1);
+        canBeEaten=true;
+        stateVersion = 0;
     }
 
     /**
@@ -97,12 +218,20 @@ public class Fruits extends GameObject implements JumpAvatarObserver {
      */
     @Override
     public void notifyObservers() {
-        Random random = new Random();
-        int randIndex = random.nextInt(FRUIT_COLORS.length);
-        Color currentFruitColor = FRUIT_COLORS[randIndex];
-        this.renderer().setRenderable(new OvalRenderable(currentFruitColor));
+        int randIndex = colorRandom.nextInt(FRUIT_RENDERABLES.length);
+        this.renderer().setRenderable(FRUIT_RENDERABLES[randIndex]);
     }
-}
-
-
 
+    /**
+     * Creates one renderable per color.
+     * @param colors The colors to create renderables of.
+     * @return The renderables, in the order of the colors.
+     */
+    private static OvalRenderable[] createRenderables(Color[] colors) {
+        OvalRenderable[] renderables = new OvalRenderable[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            renderables[i] = new OvalRenderable(colors[i]);
+        }
+        return renderables;
+    }
+}
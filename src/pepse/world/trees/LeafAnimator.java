@@ -0,0 +1,155 @@
+package pepse.world.trees;
+
+import danogl.util.Vector2;
+
+import java.util.Arrays;
+
+/**
+ * Animates every leaf in the world in a single pass, instead of running two perpetual
+ * transitions per leaf. Each leaf's sway angle and size are computed analytically from a global
+ * clock and the leaf's own phase, and the per-leaf state is kept in primitive arrays. Leaves
+ * outside the visible range are skipped entirely.
+ */
+public class LeafAnimator {
+    /** The duration of a full sway, there and back, in seconds. */
+    public static final float SWAY_PERIOD = 2;
+    private static final float SWAY_ANGLE = 15;
+    private static final float SWAY_SIZE_DELTA = 3;
+    private static final float SPIN_ANGLE = 90;
+    private static final float SPIN_DURATION = 1;
+    private static final int SIZE_STEPS = 16;
+    private static final int INITIAL_CAPACITY = 256;
+    // the leaf sizes along the sway, shared so that resizing a leaf allocates nothing; never
+    // larger than the size a leaf was added to the collision grid with, keeping its top-left
+    // corner, so a swaying leaf always stays within the grid cells it is indexed under
+    private final Vector2[] sizes = new Vector2[SIZE_STEPS + 1];
+    private final float baseSize;
+    private Leaves[] leaves = new Leaves[INITIAL_CAPACITY];
+    private float[] phases = new float[INITIAL_CAPACITY];
+    private float[] positionsX = new float[INITIAL_CAPACITY];
+    // time since the leaf started spinning after a jump, negative when not spinning
+    private float[] spinTimes = new float[INITIAL_CAPACITY];
+    private int[] sizeSteps = new int[INITIAL_CAPACITY];
+    private int count;
+    // time within the sway period, wrapped every update so it never loses float precision
+    private float clock;
+
+    /**
+     * Constructs an animator with no leaves.
+     * @param baseSize The size of a leaf at rest, it shrinks by a few pixels along the sway.
+     */
+    public LeafAnimator(float baseSize) {
+        this.baseSize = baseSize;
+        for (int step = 0; step <= SIZE_STEPS; step++) {
+            float size = baseSize - SWAY_SIZE_DELTA * step / SIZE_STEPS;
+            sizes[step] = new Vector2(size, size);
+        }
+    }
+
+    /**
+     * Starts animating a leaf.
+     * @param leaf The leaf to animate.
+     * @param phase The offset of the leaf along the sway, in seconds.
+     */
+    public void add(Leaves leaf, float phase) {
+        if (count == leaves.length) {
+            int capacity = count * 2;
+            leaves = Arrays.copyOf(leaves, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            positionsX = Arrays.copyOf(positionsX, capacity);
+            spinTimes = Arrays.copyOf(spinTimes, capacity);
+            sizeSteps = Arrays.copyOf(sizeSteps, capacity);
+        }
+        leaves[count] = leaf;
+        phases[count] = phase;
+        positionsX[count] = leaf.getTopLeftCorner().x();
+        spinTimes[count] = -1;
+        sizeSteps[count] = -1;
+        leaf.setAnimationSlot(count);
+        count++;
+    }
+
+    /**
+     * Stops animating a leaf. Does nothing if the leaf is not animated.
+     * @param leaf The leaf to stop animating.
+     */
+    public void remove(Leaves leaf) {
+        int slot = leaf.getAnimationSlot();
+        if (slot < 0 || slot >= count || leaves[slot] != leaf) {
+            return;
+        }
+        // move the last leaf into the freed slot
+        count--;
+        leaves[slot] = leaves[count];
+        phases[slot] = phases[count];
+        positionsX[slot] = positionsX[count];
+        spinTimes[slot] = spinTimes[count];
+        sizeSteps[slot] = sizeSteps[count];
+        leaves[slot].setAnimationSlot(slot);
+        leaves[count] = null;
+        leaf.setAnimationSlot(-1);
+    }
+
+    /**
+     * Makes a leaf spin once, as a reaction to the avatar's jump.
+     * @param leaf The leaf to spin.
+     */
+    public void spin(Leaves leaf) {
+        int slot = leaf.getAnimationSlot();
+        if (slot >= 0 && slot < count && leaves[slot] == leaf) {
+            spinTimes[slot] = 0;
+        }
+    }
+
+    /**
+     * Advances the clock and updates the angle and size of every visible leaf.
+     * Should be called once per frame.
+     * @param deltaTime The time elapsed since the last frame, in seconds.
+     * @param minVisibleX The left edge of the visible part of the world.
+     * @param maxVisibleX The right edge of the visible part of the world.
+     */
+    public void update(float deltaTime, float minVisibleX, float maxVisibleX) {
+        clock = (clock + deltaTime) % SWAY_PERIOD;
+        for (int i = 0; i < count; i++) {
+            if (spinTimes[i] >= 0) {
+                spinTimes[i] += deltaTime;
+                if (spinTimes[i] >= SPIN_DURATION) {
+                    spinTimes[i] = -1;
+                }
+            }
+            float x = positionsX[i];
+            if (x + baseSize < minVisibleX || x > maxVisibleX) {
+                continue;
+            }
+
+            // triangle wave over the sway period, eased at both ends
+            float t = (clock + phases[i]) % SWAY_PERIOD / (SWAY_PERIOD / 2);
+            float sway = ease(t <= 1 ? t : 2 - t);
+            float angle = spinTimes[i] >= 0 ? SPIN_ANGLE * ease(spinTimes[i] / SPIN_DURATION)
+                    : SWAY_ANGLE * sway;
+            leaves[i].renderer().setRenderableAngle(angle);
+
+            int sizeStep = Math.round(sway * SIZE_STEPS);
+            if (sizeStep != sizeSteps[i]) {
+                sizeSteps[i] = sizeStep;
+                leaves[i].setDimensions(sizes[sizeStep]);
+            }
+        }
+    }
+
+    /**
+     * @return The number of animated leaves.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Eases a value in [0, 1] in and out with a cubic curve.
+     * @param t The value to ease.
+     * @return The eased value.
+     */
+    private static float ease(float t) {
+        return t * t * (3 - 2 * t);
+    }
+}
@@ -1,27 +1,33 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.components.ScheduledTask;
-import danogl.components.Transition;
-import danogl.gui.rendering.RectangleRenderable;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
-import pepse.util.ColorSupplier;
+import pepse.util.FastRandom;
+import pepse.util.ObjectPool;
+import pepse.util.RenderablePalette;
 import pepse.world.Avatar;
 import pepse.world.JumpAvatarObserver;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Represents leaves on trees, capable of dynamic movement and reacting to avatar jumps.
  */
 public class Leaves extends GameObject implements JumpAvatarObserver {
     private static final Color LEAF_COLOR = new Color(50, 200, 30);
+    private static final RenderablePalette LEAF_PALETTE = RenderablePalette.of(LEAF_COLOR);
 
-    private static final int LEAF_SIZE = 25;
+    /** The size of a leaf at rest, in pixels. */
+    public static final int LEAF_SIZE = 25;
+    private static final Vector2 LEAF_DIMENSIONS = new Vector2(LEAF_SIZE, LEAF_SIZE);
+    // a cluster spans this many leaves on each side of the tree top, in both directions
+    static final int CLUSTER_RADIUS = 3;
+    private final LeafAnimator animator;
+    private int animationSlot = -1;
 
 
     /**
@@ -32,66 +38,93 @@ public class Leaves extends GameObject implements JumpAvatarObserver {
      * @param dimensions    Width and height in window coordinates.
      * @param renderable    The renderable representing the object. Can be null, in which case
      *                      the GameObject will not be rendered.
+     * @param animator      The animator swaying the leaf, and spinning it when the avatar jumps.
      */
-    public Leaves(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+    public Leaves(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable, LeafAnimator animator) {
         super(topLeftCorner, dimensions, renderable);
-        Random random = new Random();
-        new ScheduledTask(this,
-                random.nextFloat(), false, this::startLeafTransitions);
+        this.animator = animator;
     }
 
     /**
      * Generates a cluster of leaves around a specified position.
      * @param treeTopPos The position around which leaves are to be generated.
      * @param avatar     The avatar object to register as an observer for leaf movement.
+     * @param animator   The animator swaying the leaves, each leaf gets a random phase.
+     * @param random     The random generator laying out the cluster, seeded for the tree's column.
      * @return A list of Leaves objects created around the given position.
      */
-    public static List<Leaves> createLeavesCluster(Vector2 treeTopPos, Avatar avatar) {
-        List<Leaves> leaves = new ArrayList<>();
-        Random random = new Random();
-        int range = LEAF_SIZE*3;
+    public static List<Leaves> createLeavesCluster(Vector2 treeTopPos, Avatar avatar,
+                                                   LeafAnimator animator, FastRandom random) {
+        return createFromLayout(planCluster(treeTopPos.x(), treeTopPos.y(), random), avatar,
+                animator, null);
+    }
+
+    /**
+     * Lays out a cluster of leaves around a specified position, without creating them.
+     * Safe to call from any thread, given its own random generator.
+     * @param treeTopX The x-coordinate around which leaves are to be laid out.
+     * @param treeTopY The y-coordinate around which leaves are to be laid out.
+     * @param random The random generator laying out the cluster, seeded for the tree's column.
+     * @return The x, y and sway phase of every leaf, one triple after the other.
+     */
+    static float[] planCluster(float treeTopX, float treeTopY, FastRandom random) {
+        int range = LEAF_SIZE*CLUSTER_RADIUS;
+        int cells = (2 * range / LEAF_SIZE) * (2 * range / LEAF_SIZE);
+        float[] layout = new float[cells * 3];
+        int size = 0;
 
         for (int i = -range; i < range; i += LEAF_SIZE) {
             for (int j = -range; j < range; j += LEAF_SIZE) {
 //                int xOffset =  random.nextInt(LEAF_SIZE) - LEAF_SIZE / 2;
 //                int yOffset =  random.nextInt(LEAF_SIZE) - LEAF_SIZE / 2;
                 if (random.nextFloat() <= 0.4) {
-                    Vector2 position = treeTopPos.add(new Vector2(i , j));
-                    Leaves leaf =  new Leaves(position, new Vector2(LEAF_SIZE, LEAF_SIZE),
-                            new RectangleRenderable(ColorSupplier.approximateColor(LEAF_COLOR)));
-                    avatar.registerObserver(leaf);
-                    leaves.add(leaf);
+                    layout[size++] = treeTopX + i;
+                    layout[size++] = treeTopY + j;
+                    layout[size++] = random.nextFloat() * LeafAnimator.SWAY_PERIOD;
                 }
             }
         }
-        return leaves;
+        return Arrays.copyOf(layout, size);
     }
 
     /**
-     * Initiates transitions for leaf movement and size change to simulate natural behavior.
+     * Creates the leaves of a cluster laid out by {@link #planCluster}. Runs on the game thread.
+     * @param layout The x, y and sway phase of every leaf, one triple after the other.
+     * @param avatar The avatar object to register as an observer for leaf movement.
+     * @param animator The animator swaying the leaves.
+     * @param pool The pool of leaves released by the same animator to reuse, or null to always
+     *             create new leaves.
+     * @return The created leaves.
      */
-    private void startLeafTransitions(){
-        Transition<Float> getMovingTransition = new Transition<>(
-                this,
-                angle -> renderer().setRenderableAngle(angle),
-                0f, // Start angle
-                15f, // End angle
-                Transition.CUBIC_INTERPOLATOR_FLOAT,
-                1, // Duration in seconds
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
+    static List<Leaves> createFromLayout(float[] layout, Avatar avatar, LeafAnimator animator,
+                                         ObjectPool<Leaves> pool) {
+        List<Leaves> leaves = new ArrayList<>(layout.length / 3);
+        for (int i = 0; i < layout.length; i += 3) {
+            Vector2 position = new Vector2(layout[i], layout[i + 1]);
+            Leaves leaf = pool == null ? null : pool.acquire();
+            if (leaf == null) {
+                leaf = new Leaves(position, LEAF_DIMENSIONS,
+                        LEAF_PALETTE.at(position.x(), position.y()), animator);
+            } else {
+                leaf.reset(position);
+            }
+            animator.add(leaf, layout[i + 2]);
+            avatar.registerObserver(leaf, position.x());
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
 
-        Transition<Float> getSizeTransition = new Transition<>(
-                this,
-                (dimensions) -> setDimensions(new Vector2(dimensions,dimensions)),
-                (float)LEAF_SIZE, // Start size
-                (float)LEAF_SIZE-3, // End width
-                Transition.CUBIC_INTERPOLATOR_FLOAT,
-                1, // Duration in seconds
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
+    /**
+     * Moves a leaf that is no longer in the game nor animated to a new place, restoring its size,
+     * angle and color, so it can be reused instead of creating a new leaf.
+     * @param topLeftCorner The new position of the leaf.
+     */
+    void reset(Vector2 topLeftCorner) {
+        setTopLeftCorner(topLeftCorner);
+        setDimensions(LEAF_DIMENSIONS);
+        renderer().setRenderableAngle(0);
+        renderer().setRenderable(LEAF_PALETTE.at(topLeftCorner.x(), topLeftCorner.y()));
     }
 
     /**
@@ -99,14 +132,22 @@ public class Leaves extends GameObject implements JumpAvatarObserver {
      */
     @Override
     public void notifyObservers() {
-        new Transition<Float>(
-                this,
-                angle -> renderer().setRenderableAngle(angle),
-                0f, 90f,
-                Transition.CUBIC_INTERPOLATOR_FLOAT, 1,
-                Transition.TransitionType.TRANSITION_ONCE,
-                null);
+        animator.spin(this);
     }
 
-}
+    /**
+     * @return The slot of the leaf in its animator, or -1 if it is not animated.
+     */
+    int getAnimationSlot() {
+        return animationSlot;
+    }
 
+    /**
+     * Sets the slot of the leaf in its animator.
+     * @param animationSlot The slot, or -1 if the leaf is no longer animated.
+     */
+    void setAnimationSlot(int animationSlot) {
+        this.animationSlot = animationSlot;
+    }
+
+}
@@ -0,0 +1,157 @@
+package pepse.world.trees;
+
+/**
+ * The layout of one tree, computed without creating any game object: the position and height
+ * of its trunk, and the position of each of its leaves and fruits. Plans are immutable, so they
+ * can be computed on a worker thread and turned into game objects later on the game thread.
+ * A plan can also be described compactly, for saving: leaves always sit on a fixed grid around
+ * the trunk's top, so which cells hold a leaf fits in a bit mask, and fruits are stored as
+ * offsets from the trunk's top.
+ */
+public final class TreePlan {
+    private final float x;
+    private final float topY;
+    private final float height;
+    // x, y and sway phase of every leaf
+    private final float[] leafLayout;
+    // x and y of every fruit
+    private final float[] fruitLayout;
+    // leaf cells along each side of a cluster
+    private static final int CLUSTER_CELLS = 2 * Leaves.CLUSTER_RADIUS;
+
+    /**
+     * Constructs a tree plan.
+     * @param x The x-coordinate of the trunk's left edge.
+     * @param topY The y-coordinate of the trunk's top.
+     * @param height The height of the trunk.
+     * @param leafLayout The x, y and sway phase of every leaf, one triple after the other.
+     * @param fruitLayout The x and y of every fruit, one pair after the other.
+     */
+    TreePlan(float x, float topY, float height, float[] leafLayout, float[] fruitLayout) {
+        this.x = x;
+        this.topY = topY;
+        this.height = height;
+        this.leafLayout = leafLayout;
+        this.fruitLayout = fruitLayout;
+    }
+
+    /**
+     * @return The x-coordinate of the trunk's left edge.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return The y-coordinate of the trunk's top.
+     */
+    public float getTopY() {
+        return topY;
+    }
+
+    /**
+     * @return The height of the trunk.
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The x, y and sway phase of every leaf, one triple after the other.
+     */
+    float[] getLeafLayout() {
+        return leafLayout;
+    }
+
+    /**
+     * @return The x and y of every fruit, one pair after the other.
+     */
+    float[] getFruitLayout() {
+        return fruitLayout;
+    }
+
+    /**
+     * @return The number of leaves of the tree.
+     */
+    public int getLeafCount() {
+        return leafLayout.length / 3;
+    }
+
+    /**
+     * Describes which cells of the leaf grid around the trunk's top hold a leaf. Cells are
+     * numbered column by column from the top-left one, in the order the leaves were laid out.
+     * @return A mask with one bit set per leaf.
+     */
+    public long getLeafMask() {
+        long mask = 0;
+        for (int i = 0; i < leafLayout.length; i += 3) {
+            int cellX = Math.round((leafLayout[i] - x) / Leaves.LEAF_SIZE) + Leaves.CLUSTER_RADIUS;
+            int cellY = Math.round((leafLayout[i + 1] - topY) / Leaves.LEAF_SIZE)
+                    + Leaves.CLUSTER_RADIUS;
+            mask |= 1L << (cellX * CLUSTER_CELLS + cellY);
+        }
+        return mask;
+    }
+
+    /**
+     * @param leaf The index of the leaf, in the order of the leaf mask's bits.
+     * @return The sway phase of the leaf, in seconds.
+     */
+    public float getLeafPhase(int leaf) {
+        return leafLayout[leaf * 3 + 2];
+    }
+
+    /**
+     * @return The number of fruits of the tree.
+     */
+    public int getFruitCount() {
+        return fruitLayout.length / 2;
+    }
+
+    /**
+     * @param fruit The index of the fruit.
+     * @return The horizontal offset of the fruit from the trunk's top.
+     */
+    public float getFruitOffsetX(int fruit) {
+        return fruitLayout[fruit * 2] - x;
+    }
+
+    /**
+     * @param fruit The index of the fruit.
+     * @return The vertical offset of the fruit from the trunk's top.
+     */
+    public float getFruitOffsetY(int fruit) {
+        return fruitLayout[fruit * 2 + 1] - topY;
+    }
+
+    /**
+     * Rebuilds a plan from its compact description, as returned by the getters of a plan.
+     * @param x The x-coordinate of the trunk's left edge.
+     * @param topY The y-coordinate of the trunk's top.
+     * @param height The height of the trunk.
+     * @param leafMask The cells of the leaf grid holding a leaf, as in {@link #getLeafMask}.
+     * @param leafPhases The sway phase of every leaf, in the order of the mask's bits.
+     * @param fruitOffsets The horizontal and vertical offset of every fruit from the trunk's top,
+     *                     one pair after the other.
+     * @return The plan.
+     */
+    public static TreePlan fromDescription(float x, float topY, float height, long leafMask,
+                                           float[] leafPhases, float[] fruitOffsets) {
+        float[] leafLayout = new float[leafPhases.length * 3];
+        int leaf = 0;
+        for (long bits = leafMask; bits != 0 && leaf < leafPhases.length; bits &= bits - 1) {
+            int cell = Long.numberOfTrailingZeros(bits);
+            leafLayout[leaf * 3] = x + (cell / CLUSTER_CELLS - Leaves.CLUSTER_RADIUS) * Leaves.LEAF_SIZE;
+            leafLayout[leaf * 3 + 1] = topY
+                    + (cell % CLUSTER_CELLS - Leaves.CLUSTER_RADIUS) * Leaves.LEAF_SIZE;
+            leafLayout[leaf * 3 + 2] = leafPhases[leaf];
+            leaf++;
+        }
+        float[] fruitLayout = new float[fruitOffsets.length];
+        for (int i = 0; i < fruitOffsets.length; i += 2) {
+            fruitLayout[i] = x + fruitOffsets[i];
+            fruitLayout[i + 1] = topY + fruitOffsets[i + 1];
+        }
+        return new TreePlan(x, topY, height, leafLayout, fruitLayout);
+    }
+}
@@ -4,7 +4,8 @@ import danogl.GameObject;
 import danogl.components.GameObjectPhysics;
 import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
-import pepse.world.Avatar;
+import pepse.util.FastRandom;
+import pepse.util.RenderablePalette;
 import pepse.world.JumpAvatarObserver;
 
 import java.awt.*;
@@ -16,6 +17,8 @@ import java.awt.*;
 public class Trunk extends GameObject implements JumpAvatarObserver {
     private static final Color TRUNK_DEF_COLOR = new Color(100, 50, 20);
     private static final int TRUNK_WIDTH = 20;
+    // trunks keep their exact default color, so the palette holds a single shared renderable
+    private static final RenderablePalette TRUNK_PALETTE = RenderablePalette.of(TRUNK_DEF_COLOR, 0);
 
     private static final Color[] BROWN_TONES = {
             new Color(129, 69, 19), // Brown
@@ -25,16 +28,34 @@ public class Trunk extends GameObject implements JumpAvatarObserver {
             new Color(110,40,10),// maroon
             new Color(100, 50, 20) // regular
     };
+    // one shared renderable per tone, so changing color on a jump allocates nothing
+    private static final RectangleRenderable[] BROWN_RENDERABLES = createRenderables(BROWN_TONES);
+    private final FastRandom colorRandom;
 
     /**
      * Constructs a trunk object with a specified position and height.
      * @param topLeftCorner The position of the trunk in the game world.
      * @param randomHeight The height of the trunk, typically determined randomly for variety.
+     * @param colorRandom The random generator picking the trunk's color on jumps, shared by all flora.
      */
-    public Trunk(Vector2 topLeftCorner, float randomHeight) {
-        super(topLeftCorner,new Vector2(TRUNK_WIDTH, randomHeight),new RectangleRenderable(TRUNK_DEF_COLOR));
+    public Trunk(Vector2 topLeftCorner, float randomHeight, FastRandom colorRandom) {
+        super(topLeftCorner,new Vector2(TRUNK_WIDTH, randomHeight),
+                TRUNK_PALETTE.at(topLeftCorner.x(), topLeftCorner.y()));
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
+        this.colorRandom = colorRandom;
+    }
+
+    /**
+     * Moves a trunk that is no longer in the game to a new tree, restoring its default color, so
+     * it can be reused instead of creating a new trunk.
+     * @param topLeftCorner The position of the trunk in the game world.
+     * @param height The height of the trunk.
+     */
+    void reset(Vector2 topLeftCorner, float height) {
+        setTopLeftCorner(topLeftCorner);
+        setDimensions(new Vector2(TRUNK_WIDTH, height));
+        renderer().setRenderable(TRUNK_PALETTE.at(topLeftCorner.x(), topLeftCorner.y()));
     }
 
     /**
@@ -43,9 +64,21 @@ public class Trunk extends GameObject implements JumpAvatarObserver {
      */
     @Override
     public void notifyObservers() {
-        int randomIndex = (int) (Math.random() * BROWN_TONES.length);
-        Color trunkColor = BROWN_TONES[randomIndex];
-        this.renderer().setRenderable(new RectangleRenderable(trunkColor));
+        int randomIndex = colorRandom.nextInt(BROWN_RENDERABLES.length);
+        this.renderer().setRenderable(BROWN_RENDERABLES[randomIndex]);
+    }
+
+    /**
+     * Creates one renderable per color.
+     * @param colors The colors to create renderables of.
+     * @return The renderables, in the order of the colors.
+     */
+    private static RectangleRenderable[] createRenderables(Color[] colors) {
+        RectangleRenderable[] renderables = new RectangleRenderable[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            renderables[i] = new RectangleRenderable(colors[i]);
+        }
+        return renderables;
     }
 }
 